@@ -0,0 +1,122 @@
+package com.johnsonsu.rnsoundplayer;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.ExoTrackSelection;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.google.android.exoplayer2.util.Util;
+
+// DefaultLoadControl with a buffer ceiling that can be lowered while the player is running
+//
+// DefaultLoadControl's durations are fixed when it is built. Under memory pressure the module
+// lowers the ceiling instead (see MemoryGovernor): loading stops once that much is buffered, the
+// already buffered audio keeps playing, and trim() hands unused allocator memory back. The
+// buffer needed to start playback can be changed per track as well (see StartupStrategy).
+class AdaptiveLoadControl implements LoadControl {
+  private final DefaultLoadControl delegate;
+  private final long defaultMaxBufferUs;
+  private final long minCeilingUs;
+  private volatile long maxBufferUs;
+  private volatile boolean loadingSuspended = false;
+  // C.TIME_UNSET for the delegate's bufferForPlaybackMs
+  private volatile long startBufferUs = C.TIME_UNSET;
+
+  AdaptiveLoadControl(int minBufferMs, int maxBufferMs, int bufferForPlaybackMs, int bufferForPlaybackAfterRebufferMs) {
+    this.delegate = new DefaultLoadControl.Builder()
+            .setBufferDurationsMs(minBufferMs, maxBufferMs, bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs)
+            .build();
+    this.defaultMaxBufferUs = Util.msToUs(maxBufferMs);
+    // Playback has to be able to (re)start, so the ceiling never drops below what that needs
+    this.minCeilingUs = Util.msToUs(Math.max(bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs));
+    this.maxBufferUs = defaultMaxBufferUs;
+  }
+
+  // Lowers (or restores) the buffer ceiling, never above the configured maximum
+  void setMaxBufferMs(long maxBufferMs) {
+    this.maxBufferUs = Math.max(minCeilingUs, Math.min(defaultMaxBufferUs, Util.msToUs(maxBufferMs)));
+  }
+
+  void resetMaxBuffer() {
+    this.maxBufferUs = defaultMaxBufferUs;
+  }
+
+  long getMaxBufferMs() {
+    return Util.usToMs(maxBufferUs);
+  }
+
+  // Buffered duration the first start of a track waits for, C.TIME_UNSET restores the default.
+  // Rebuffering still waits for bufferForPlaybackAfterRebufferMs.
+  void setStartBufferMs(long startBufferMs) {
+    this.startBufferUs = startBufferMs == C.TIME_UNSET ? C.TIME_UNSET : Util.msToUs(startBufferMs);
+  }
+
+  // Stops loading entirely, e.g. for playback that has been paused for a long time
+  void setLoadingSuspended(boolean loadingSuspended) {
+    this.loadingSuspended = loadingSuspended;
+  }
+
+  // Releases allocator memory that isn't holding buffered media
+  void trim() {
+    Allocator allocator = delegate.getAllocator();
+    if (allocator instanceof DefaultAllocator) {
+      ((DefaultAllocator) allocator).trim();
+    }
+  }
+
+  @Override
+  public void onPrepared() {
+    delegate.onPrepared();
+  }
+
+  @Override
+  public void onTracksSelected(Renderer[] renderers, TrackGroupArray trackGroups, ExoTrackSelection[] trackSelections) {
+    delegate.onTracksSelected(renderers, trackGroups, trackSelections);
+  }
+
+  @Override
+  public void onStopped() {
+    delegate.onStopped();
+  }
+
+  @Override
+  public void onReleased() {
+    delegate.onReleased();
+  }
+
+  @Override
+  public Allocator getAllocator() {
+    return delegate.getAllocator();
+  }
+
+  @Override
+  public long getBackBufferDurationUs() {
+    return delegate.getBackBufferDurationUs();
+  }
+
+  @Override
+  public boolean retainBackBufferFromKeyframe() {
+    return delegate.retainBackBufferFromKeyframe();
+  }
+
+  @Override
+  public boolean shouldContinueLoading(long playbackPositionUs, long bufferedDurationUs, float playbackSpeed) {
+    if (loadingSuspended || bufferedDurationUs >= maxBufferUs) {
+      return false;
+    }
+    return delegate.shouldContinueLoading(playbackPositionUs, bufferedDurationUs, playbackSpeed);
+  }
+
+  @Override
+  public boolean shouldStartPlayback(long bufferedDurationUs, float playbackSpeed, boolean rebuffering, long targetLiveOffsetUs) {
+    long startBufferUs = this.startBufferUs;
+    if (!rebuffering && startBufferUs != C.TIME_UNSET) {
+      // Never more than loading is allowed to buffer, or playback would never start
+      return bufferedDurationUs >= Math.min(startBufferUs, maxBufferUs);
+    }
+    return delegate.shouldStartPlayback(bufferedDurationUs, playbackSpeed, rebuffering, targetLiveOffsetUs);
+  }
+}
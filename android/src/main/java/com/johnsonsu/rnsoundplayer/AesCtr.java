@@ -0,0 +1,56 @@
+package com.johnsonsu.rnsoundplayer;
+
+import org.bouncycastle.crypto.modes.SICBlockCipher;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+
+// AES-CTR keystream positioning shared by the encrypted data sources
+//
+// The 16-byte counter base is a fixed 64-bit nonce followed by a 64-bit big-endian block
+// counter. Byte N of a track is encrypted with counter (base + N / 16), at offset N % 16
+// inside that keystream block, so decryption can start at any byte without reading what
+// comes before it.
+final class AesCtr {
+  static final int BLOCK_SIZE = 16;
+
+  private AesCtr() {}
+
+  // Builds the IV for the given block: nonce unchanged, counter = base counter + blockPosition
+  static byte[] ivForBlock(byte[] counterBase, long blockPosition) {
+    byte[] iv = new byte[BLOCK_SIZE];
+    System.arraycopy(counterBase, 0, iv, 0, 8);
+
+    long baseCounter = 0;
+    for (int i = 8; i < 16; i++) {
+      baseCounter = (baseCounter << 8) | (counterBase[i] & 0xFF);
+    }
+
+    long currentCounter = baseCounter + blockPosition;
+    for (int i = 15; i >= 8; i--) {
+      iv[i] = (byte) (currentCounter & 0xFF);
+      currentCounter >>>= 8;
+    }
+    return iv;
+  }
+
+  // Positions the cipher so the next processed byte decrypts stream byte `offset`
+  static void seek(SICBlockCipher cipher, byte[] key, byte[] counterBase, long offset) {
+    byte[] iv = ivForBlock(counterBase, offset / BLOCK_SIZE);
+    cipher.init(false, new ParametersWithIV(new KeyParameter(key), iv));
+
+    int offsetInBlock = (int) (offset % BLOCK_SIZE);
+    if (offsetInBlock > 0) {
+      cipher.skip(offsetInBlock);
+    }
+  }
+
+  static byte[] hexToByteArray(String hex) {
+    int len = hex.length();
+    byte[] data = new byte[len / 2];
+    for (int i = 0; i < len; i += 2) {
+      data[i / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4)
+                           + Character.digit(hex.charAt(i+1), 16));
+    }
+    return data;
+  }
+}
@@ -0,0 +1,211 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.util.NetworkTypeObserver;
+
+// Throughput and time to first byte seen by streaming, per network type and host, across sessions
+//
+// StreamingDataSource reports every transfer that moved at least MIN_SAMPLE_BYTES when it closes.
+// Both values are kept as exponentially weighted moving averages, so one bad transfer doesn't
+// undo a long history and the figures follow a network that changes for good. The history is
+// small (MAX_ENTRIES, least recently used first out) and written to disk a few seconds after it
+// changes, so a new session can choose its startup strategy before anything has been measured.
+class BandwidthHistory {
+  // Smaller transfers say more about latency than about throughput
+  static final long MIN_SAMPLE_BYTES = 32 * 1024;
+  // Weight of a new sample in the averages
+  private static final double ALPHA = 0.3;
+  private static final int MAX_ENTRIES = 64;
+  private static final long SAVE_DELAY_MS = 5000;
+
+  private static final String TAG = "BandwidthHistory";
+
+  private static final ScheduledExecutorService SAVE_EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "RNSoundPlayer-bandwidth");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  static class Entry {
+    final int networkType;
+    final String host;
+    double bitrate;
+    double timeToFirstByteMs;
+    int samples;
+    long updatedAt;
+
+    Entry(int networkType, String host) {
+      this.networkType = networkType;
+      this.host = host;
+    }
+  }
+
+  private final File file;
+  private final NetworkTypeObserver networkTypeObserver;
+  // Access ordered, so iteration starts with the least recently used entry
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private boolean saveScheduled = false;
+
+  BandwidthHistory(Context context, File file) {
+    this.file = file;
+    this.networkTypeObserver = NetworkTypeObserver.getInstance(context);
+    load();
+  }
+
+  int getNetworkType() {
+    return networkTypeObserver.getNetworkType();
+  }
+
+  @Nullable
+  static String hostOf(String url) {
+    return Uri.parse(url).getHost();
+  }
+
+  // `timeToFirstByteMs` is C.TIME_UNSET when the transfer didn't make its own connection
+  synchronized void record(String host, long bytes, long elapsedNs, long timeToFirstByteMs) {
+    if (bytes < MIN_SAMPLE_BYTES || elapsedNs <= 0) {
+      return;
+    }
+    int networkType = getNetworkType();
+    String key = key(networkType, host);
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      entry = new Entry(networkType, host);
+      entries.put(key, entry);
+    }
+
+    double bitrate = bytes * 8 * 1e9 / elapsedNs;
+    entry.bitrate = entry.samples == 0 ? bitrate : ALPHA * bitrate + (1 - ALPHA) * entry.bitrate;
+    if (timeToFirstByteMs != C.TIME_UNSET) {
+      entry.timeToFirstByteMs = entry.timeToFirstByteMs == 0
+              ? timeToFirstByteMs : ALPHA * timeToFirstByteMs + (1 - ALPHA) * entry.timeToFirstByteMs;
+    }
+    entry.samples++;
+    entry.updatedAt = System.currentTimeMillis();
+
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (entries.size() > MAX_ENTRIES && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+    scheduleSave();
+  }
+
+  // History for `host` on the current network, null if this combination was never measured
+  @Nullable
+  synchronized Entry get(@Nullable String host) {
+    return host != null ? entries.get(key(getNetworkType(), host)) : null;
+  }
+
+  // Average bitrate of every host measured on each network type, for the bandwidth meter's
+  // initial estimates
+  synchronized Map<Integer, Long> getNetworkEstimates() {
+    Map<Integer, double[]> sums = new LinkedHashMap<>();
+    for (Entry entry : entries.values()) {
+      double[] sum = sums.get(entry.networkType);
+      if (sum == null) {
+        sum = new double[2];
+        sums.put(entry.networkType, sum);
+      }
+      sum[0] += entry.bitrate;
+      sum[1]++;
+    }
+    Map<Integer, Long> estimates = new LinkedHashMap<>();
+    for (Map.Entry<Integer, double[]> sum : sums.entrySet()) {
+      estimates.put(sum.getKey(), (long) (sum.getValue()[0] / sum.getValue()[1]));
+    }
+    return estimates;
+  }
+
+  synchronized void clear() {
+    entries.clear();
+    scheduleSave();
+  }
+
+  private static String key(int networkType, String host) {
+    return networkType + "|" + host;
+  }
+
+  private void scheduleSave() {
+    if (saveScheduled) {
+      return;
+    }
+    saveScheduled = true;
+    SAVE_EXECUTOR.schedule(new Runnable() {
+      @Override
+      public void run() {
+        save();
+      }
+    }, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+  }
+
+  private void load() {
+    try {
+      JSONArray items = FileStore.readJsonArray(file);
+      if (items == null) {
+        return;
+      }
+      for (int i = 0; i < items.length(); i++) {
+        JSONObject item = items.getJSONObject(i);
+        Entry entry = new Entry(item.getInt("networkType"), item.getString("host"));
+        entry.bitrate = item.getDouble("bitrate");
+        entry.timeToFirstByteMs = item.optDouble("timeToFirstByteMs", 0);
+        entry.samples = item.getInt("samples");
+        entry.updatedAt = item.optLong("updatedAt", 0);
+        entries.put(key(entry.networkType, entry.host), entry);
+      }
+    } catch (IOException | JSONException e) {
+      Log.e(TAG, "Failed to load bandwidth history: " + e.getMessage());
+    }
+  }
+
+  private void save() {
+    JSONArray items = new JSONArray();
+    synchronized (this) {
+      saveScheduled = false;
+      try {
+        for (Entry entry : entries.values()) {
+          JSONObject item = new JSONObject();
+          item.put("networkType", entry.networkType);
+          item.put("host", entry.host);
+          item.put("bitrate", entry.bitrate);
+          item.put("timeToFirstByteMs", entry.timeToFirstByteMs);
+          item.put("samples", entry.samples);
+          item.put("updatedAt", entry.updatedAt);
+          items.put(item);
+        }
+      } catch (JSONException e) {
+        Log.e(TAG, "Failed to save bandwidth history: " + e.getMessage());
+        return;
+      }
+    }
+
+    try {
+      FileStore.writeJsonArray(file, items);
+    } catch (IOException e) {
+      Log.e(TAG, "Failed to save bandwidth history: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.johnsonsu.rnsoundplayer;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+// Fixed-size byte buffers shared by every StreamingDataSource the module creates
+//
+// ExoPlayer creates a new data source for every open and seek, and each one needs a header
+// buffer plus, when decrypting, two chunk buffers. Taking them from here instead of allocating
+// keeps scrubbing and multiple players from producing a steady stream of 64KB garbage. Buffers
+// held decrypted audio, so they are zero-filled on release before anyone else can get them.
+// At most maxPooled buffers are kept, the rest is left to the garbage collector, and memory
+// pressure (see MemoryGovernor) empties the pool.
+class BufferPool implements MemoryGovernor.Trimmable {
+  private final int bufferSize;
+  private final int maxPooled;
+  private final ArrayDeque<byte[]> pooled = new ArrayDeque<>();
+  private long hits = 0;
+  private long misses = 0;
+  private long dropped = 0;
+
+  BufferPool(int bufferSize, int maxPooled) {
+    this.bufferSize = bufferSize;
+    this.maxPooled = maxPooled;
+  }
+
+  synchronized byte[] acquire() {
+    byte[] buffer = pooled.pollFirst();
+    if (buffer != null) {
+      hits++;
+      return buffer;
+    }
+    misses++;
+    return new byte[bufferSize];
+  }
+
+  // Wipes `buffer` and keeps it for the next acquire() if there is room
+  void release(byte[] buffer) {
+    Arrays.fill(buffer, (byte) 0);
+    synchronized (this) {
+      if (buffer.length != bufferSize || pooled.size() >= maxPooled) {
+        dropped++;
+        return;
+      }
+      pooled.addFirst(buffer);
+    }
+  }
+
+  @Override
+  public synchronized void onTrim(int pressure) {
+    if (pressure >= MemoryGovernor.PRESSURE_MODERATE) {
+      pooled.clear();
+    } else if (pressure == MemoryGovernor.PRESSURE_BACKGROUND) {
+      while (pooled.size() > maxPooled / 2) {
+        pooled.pollLast();
+      }
+    }
+  }
+
+  static class Stats {
+    final long hits;
+    final long misses;
+    final long dropped;
+    final int pooled;
+    final long pooledBytes;
+
+    Stats(long hits, long misses, long dropped, int pooled, long pooledBytes) {
+      this.hits = hits;
+      this.misses = misses;
+      this.dropped = dropped;
+      this.pooled = pooled;
+      this.pooledBytes = pooledBytes;
+    }
+  }
+
+  synchronized Stats getStats() {
+    return new Stats(hits, misses, dropped, pooled.size(), (long) pooled.size() * bufferSize);
+  }
+}
@@ -0,0 +1,226 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import javax.annotation.Nullable;
+
+// Opt-in tap that exposes the bytes of plain (unencrypted) streams handed to ExoPlayer to JS
+// consumers
+//
+// The bridge can only carry strings and numbers, and JSI bindings would need a C++ build this
+// library doesn't have, so chunks go through a memory-mapped ring file that consumers read
+// themselves. This is not a zero-copy ArrayBuffer: the loader thread copies each chunk into the
+// ring once, and the consumer's file reader copies it out again. Because the ring is a file,
+// StreamingDataSource never taps encrypted streams, their plaintext must not reach the disk.
+// The file only exists while the tap is enabled; a file left behind by a killed process is
+// deleted when the next tap is created. Contiguous chunks are
+// reported together once batchBytes have collected, or earlier when the next chunk doesn't
+// follow on (ring wrap, seek, dropped chunk) or the stream closes, so the bridge sees one event
+// per batch rather than one per ExoPlayer read. The event only says where the bytes are (offset
+// and length in the file); turning them into an ArrayBuffer is up to the consumer's file reader.
+//
+// Backpressure: ring space is only reused once JS releases a chunk. If JS falls behind and a
+// chunk doesn't fit, or too many chunks are pending, the chunk is dropped and counted instead
+// of blocking the loader, so a slow consumer can never stall playback.
+class ChunkTap {
+  static final int DEFAULT_CAPACITY_BYTES = 1024 * 1024;
+  static final int DEFAULT_BATCH_BYTES = 64 * 1024;
+  private static final int MAX_PENDING_CHUNKS = 256;
+
+  interface Listener {
+    // `sequence` is the last chunk of a batch of `length` contiguous bytes at `offset`
+    void onChunk(long sequence, int offset, int length, long streamPosition, long droppedChunks);
+  }
+
+  private static class Batch {
+    final long sequence;
+    final int offset;
+    final int length;
+    final long streamPosition;
+    final long droppedChunks;
+
+    Batch(long sequence, int offset, int length, long streamPosition, long droppedChunks) {
+      this.sequence = sequence;
+      this.offset = offset;
+      this.length = length;
+      this.streamPosition = streamPosition;
+      this.droppedChunks = droppedChunks;
+    }
+  }
+
+  private static class PendingChunk {
+    final long sequence;
+    final int offset;
+    final int length;
+
+    PendingChunk(long sequence, int offset, int length) {
+      this.sequence = sequence;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private final File file;
+  private final Listener listener;
+  private final ArrayDeque<PendingChunk> pending = new ArrayDeque<>();
+  @Nullable private RandomAccessFile randomAccessFile;
+  @Nullable private MappedByteBuffer ring;
+  private int capacity = 0;
+  private int writeOffset = 0;
+  private long nextSequence = 0;
+  private long droppedChunks = 0;
+  private int batchBytes = DEFAULT_BATCH_BYTES;
+  // Chunks written but not reported yet, all contiguous in the ring and in the stream
+  private long batchSequence = -1;
+  private int batchOffset = 0;
+  private int batchLength = 0;
+  private long batchPosition = 0;
+
+  ChunkTap(File file, Listener listener) {
+    this.file = file;
+    this.listener = listener;
+    file.delete();
+  }
+
+  String getPath() {
+    return file.getAbsolutePath();
+  }
+
+  synchronized void enable(int capacity, int batchBytes) throws IOException {
+    disable();
+    this.capacity = capacity > 0 ? capacity : DEFAULT_CAPACITY_BYTES;
+    // A batch can never be larger than the ring
+    this.batchBytes = Math.min(this.capacity, batchBytes > 0 ? batchBytes : DEFAULT_BATCH_BYTES);
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      randomAccessFile.setLength(this.capacity);
+      this.ring = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, this.capacity);
+    } catch (IOException e) {
+      randomAccessFile.close();
+      file.delete();
+      throw e;
+    }
+    this.randomAccessFile = randomAccessFile;
+    this.writeOffset = 0;
+    this.nextSequence = 0;
+    this.droppedChunks = 0;
+  }
+
+  // Called on the loader thread for every chunk given to ExoPlayer, never blocks
+  void write(byte[] data, int dataOffset, int length, long streamPosition) {
+    Batch previous = null;
+    Batch full = null;
+    synchronized (this) {
+      if (ring == null) {
+        return;
+      }
+      int offset = allocate(length);
+      if (offset < 0 || pending.size() >= MAX_PENDING_CHUNKS) {
+        droppedChunks++;
+        return;
+      }
+
+      ring.position(offset);
+      ring.put(data, dataOffset, length);
+      long sequence = nextSequence++;
+      pending.addLast(new PendingChunk(sequence, offset, length));
+      writeOffset = offset + length;
+
+      if (batchLength > 0 && (offset != batchOffset + batchLength || streamPosition != batchPosition + batchLength)) {
+        previous = takeBatch();
+      }
+      if (batchLength == 0) {
+        batchOffset = offset;
+        batchPosition = streamPosition;
+      }
+      batchLength += length;
+      batchSequence = sequence;
+      if (batchLength >= batchBytes) {
+        full = takeBatch();
+      }
+    }
+    report(previous);
+    report(full);
+  }
+
+  // Reports the chunks collected so far, e.g. when the stream closes
+  void flush() {
+    Batch batch;
+    synchronized (this) {
+      batch = takeBatch();
+    }
+    report(batch);
+  }
+
+  @Nullable
+  private Batch takeBatch() {
+    if (batchLength == 0) {
+      return null;
+    }
+    Batch batch = new Batch(batchSequence, batchOffset, batchLength, batchPosition, droppedChunks);
+    batchLength = 0;
+    return batch;
+  }
+
+  private void report(@Nullable Batch batch) {
+    if (batch != null) {
+      listener.onChunk(batch.sequence, batch.offset, batch.length, batch.streamPosition, batch.droppedChunks);
+    }
+  }
+
+  // Releases the given chunk and every chunk before it, making their space reusable
+  synchronized void release(long sequence) {
+    while (!pending.isEmpty() && pending.peekFirst().sequence <= sequence) {
+      pending.removeFirst();
+    }
+    if (pending.isEmpty()) {
+      writeOffset = 0;
+    }
+  }
+
+  synchronized void disable() {
+    if (ring == null) {
+      file.delete();
+      return;
+    }
+    pending.clear();
+    batchLength = 0;
+    ring = null;
+    try {
+      if (randomAccessFile != null) {
+        randomAccessFile.close();
+        randomAccessFile = null;
+      }
+    } catch (IOException e) {
+      Log.w("ChunkTap", "Error closing tap file: " + e.getMessage());
+    }
+    file.delete();
+  }
+
+  // Finds a contiguous region for `length` bytes behind the newest pending chunk, wrapping to
+  // the start of the ring when the tail is too short. Returns -1 if there is no room.
+  private int allocate(int length) {
+    if (length > capacity) {
+      return -1;
+    }
+    if (pending.isEmpty()) {
+      return 0;
+    }
+
+    int head = pending.peekFirst().offset;
+    if (writeOffset > head) {
+      if (capacity - writeOffset >= length) {
+        return writeOffset;
+      }
+      // Wrap around, leaving at least one byte between the new chunk and the oldest one
+      return head > length ? 0 : -1;
+    }
+    return head - writeOffset > length ? writeOffset : -1;
+  }
+}
@@ -0,0 +1,95 @@
+package com.johnsonsu.rnsoundplayer;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+
+// Keeps the connection of a just-closed StreamingDataSource around so the next open can continue on it
+//
+// A seek makes ExoPlayer close the data source and open a new one at the target. When the target
+// is a little ahead of where the old connection stopped, as it is while scrubbing forward,
+// skipping the bytes in between on the live stream is much cheaper than a new connection and
+// Range request. There is one slot per track, shared through the Factory, and a connection
+// that isn't claimed within LINGER_MS is closed.
+class ConnectionLinger {
+  static final long LINGER_MS = 2000;
+  static final long MAX_SKIP_BYTES = 256 * 1024;
+
+  private static final ScheduledExecutorService EXPIRY_EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "RNSoundPlayer-linger");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  // A parked connection, positioned at `position` (the next unread byte of the stream)
+  static class Parked {
+    final OriginSelector.Connection connection;
+    final long position;
+    // Absolute end of the stream, or C.LENGTH_UNSET
+    final long endPosition;
+
+    Parked(OriginSelector.Connection connection, long position, long endPosition) {
+      this.connection = connection;
+      this.position = position;
+      this.endPosition = endPosition;
+    }
+  }
+
+  @Nullable private Parked parked;
+  @Nullable private ScheduledFuture<?> expiry;
+
+  synchronized void park(OriginSelector.Connection connection, long position, long endPosition) {
+    discard();
+    parked = new Parked(connection, position, endPosition);
+    expiry = EXPIRY_EXECUTOR.schedule(new Runnable() {
+      @Override
+      public void run() {
+        synchronized (ConnectionLinger.this) {
+          discard();
+        }
+      }
+    }, LINGER_MS, TimeUnit.MILLISECONDS);
+  }
+
+  // Hands over the parked connection if `position` is at most MAX_SKIP_BYTES ahead of it. Any
+  // other request closes it, the slot only ever serves the open that directly follows a close.
+  @Nullable
+  synchronized Parked claim(long position) {
+    Parked candidate = parked;
+    if (candidate == null) {
+      return null;
+    }
+    long skip = position - candidate.position;
+    boolean withinStream = candidate.endPosition == C.LENGTH_UNSET || position < candidate.endPosition;
+    if (skip < 0 || skip > MAX_SKIP_BYTES || !withinStream) {
+      discard();
+      return null;
+    }
+    parked = null;
+    cancelExpiry();
+    return candidate;
+  }
+
+  synchronized void discard() {
+    cancelExpiry();
+    if (parked != null) {
+      parked.connection.close();
+      parked = null;
+    }
+  }
+
+  private void cancelExpiry() {
+    if (expiry != null) {
+      expiry.cancel(false);
+      expiry = null;
+    }
+  }
+}
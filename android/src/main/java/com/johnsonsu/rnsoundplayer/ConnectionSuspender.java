@@ -0,0 +1,44 @@
+package com.johnsonsu.rnsoundplayer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+// Closes the network connections of playback that has been paused for a long time
+//
+// A paused ExoPlayer keeps its loader, and with it the data source's HTTP connection, open
+// indefinitely. Playback data sources register here while they are open; suspending closes
+// their connections without closing the data sources themselves, so the player keeps what it
+// has buffered and the data source reconnects with a Range request at the exact byte it stopped
+// at once the loader reads again.
+class ConnectionSuspender {
+  interface Suspendable {
+    // Returns false if the connection is busy (a read is in flight) and couldn't be closed now
+    boolean suspendConnection();
+  }
+
+  private final Set<Suspendable> suspendables = Collections.newSetFromMap(new WeakHashMap<Suspendable, Boolean>());
+
+  synchronized void register(Suspendable suspendable) {
+    suspendables.add(suspendable);
+  }
+
+  synchronized void unregister(Suspendable suspendable) {
+    suspendables.remove(suspendable);
+  }
+
+  // Returns true if every registered connection is now closed
+  boolean suspendAll() {
+    List<Suspendable> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(suspendables);
+    }
+    boolean allSuspended = true;
+    for (Suspendable suspendable : snapshot) {
+      allSuspended &= suspendable.suspendConnection();
+    }
+    return allSuspended;
+  }
+}
@@ -0,0 +1,174 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import javax.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.upstream.BaseDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.FileDataSource;
+
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.modes.SICBlockCipher;
+
+// DataSource for AES-CTR encrypted files in app storage
+//
+// The file is memory-mapped (or read with positional FileChannel reads when it is too large
+// to map) and ciphertext is copied straight into ExoPlayer's buffer and decrypted in place,
+// so no plaintext ever touches the disk and no intermediate buffers are allocated.
+// Seeking only re-positions the CTR keystream, which is O(1) for any byte offset.
+//
+// Data Flow: mapped file → ExoPlayer buffer → decrypt in place
+class EncryptedFileDataSource extends BaseDataSource {
+  // Files larger than this are read with positional reads, a single mapping can't exceed 2 GB
+  private static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
+  private final String path;
+  private final byte[] dekKey;
+  private final byte[] counterBase;
+  private final SICBlockCipher ctrCipher = new SICBlockCipher(new AESEngine());
+
+  @Nullable private RandomAccessFile file;
+  @Nullable private FileChannel channel;
+  @Nullable private MappedByteBuffer mappedBuffer;
+  @Nullable private Uri uri;
+  private long position;
+  private long bytesRemaining;
+  private boolean opened;
+
+  EncryptedFileDataSource(String path, String dekHex, String counterBaseHex) {
+    super(/* isNetwork= */ false);
+    this.path = path;
+    this.dekKey = AesCtr.hexToByteArray(dekHex);
+    this.counterBase = AesCtr.hexToByteArray(counterBaseHex);
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws IOException {
+    uri = dataSpec.uri;
+    transferInitializing(dataSpec);
+
+    try {
+      file = new RandomAccessFile(path, "r");
+      channel = file.getChannel();
+      long size = channel.size();
+
+      if (dataSpec.position > size) {
+        throw new DataSourceException(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+      }
+      if (size <= MAX_MAPPED_SIZE) {
+        mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+
+      position = dataSpec.position;
+      bytesRemaining = dataSpec.length != C.LENGTH_UNSET
+              ? Math.min(dataSpec.length, size - position)
+              : size - position;
+    } catch (DataSourceException e) {
+      throw e;
+    } catch (IOException e) {
+      Log.e("EncryptedFileDataSource", "Failed to open encrypted file: " + path, e);
+      throw new FileDataSource.FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_FILE_NOT_FOUND);
+    }
+
+    AesCtr.seek(ctrCipher, dekKey, counterBase, position);
+
+    opened = true;
+    transferStarted(dataSpec);
+    return bytesRemaining;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int readLength) throws IOException {
+    if (readLength == 0) {
+      return 0;
+    }
+    if (bytesRemaining == 0) {
+      return C.RESULT_END_OF_INPUT;
+    }
+
+    int bytesToRead = (int) Math.min(readLength, bytesRemaining);
+    try {
+      if (mappedBuffer != null) {
+        mappedBuffer.position((int) position);
+        mappedBuffer.get(buffer, offset, bytesToRead);
+      } else {
+        ByteBuffer target = ByteBuffer.wrap(buffer, offset, bytesToRead);
+        while (target.hasRemaining()) {
+          if (channel.read(target, position + target.position() - offset) < 0) {
+            break;
+          }
+        }
+        bytesToRead = target.position() - offset;
+        if (bytesToRead == 0) {
+          return C.RESULT_END_OF_INPUT;
+        }
+      }
+    } catch (IOException e) {
+      throw new FileDataSource.FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+    }
+
+    // CTR is a stream cipher, so decrypting in place is safe
+    ctrCipher.processBytes(buffer, offset, bytesToRead, buffer, offset);
+
+    position += bytesToRead;
+    bytesRemaining -= bytesToRead;
+    bytesTransferred(bytesToRead);
+    return bytesToRead;
+  }
+
+  @Nullable
+  @Override
+  public Uri getUri() {
+    return uri;
+  }
+
+  @Override
+  public void close() throws IOException {
+    uri = null;
+    mappedBuffer = null;
+    try {
+      if (file != null) {
+        file.close();
+      }
+    } catch (IOException e) {
+      throw new FileDataSource.FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+    } finally {
+      file = null;
+      channel = null;
+      ctrCipher.reset();
+      if (opened) {
+        opened = false;
+        transferEnded();
+      }
+    }
+  }
+
+  // Factory class for creating EncryptedFileDataSource instances
+  public static class Factory implements DataSource.Factory {
+    private final String path;
+    private final String dekHex;
+    private final String counterBaseHex;
+
+    public Factory(String path, String dekHex, String counterBaseHex) {
+      this.path = path;
+      this.dekHex = dekHex;
+      this.counterBaseHex = counterBaseHex;
+    }
+
+    @Override
+    public DataSource createDataSource() {
+      return new EncryptedFileDataSource(path, dekHex, counterBaseHex);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.johnsonsu.rnsoundplayer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import javax.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+// Small files the module keeps across launches, like the JSON indexes of downloads and cached
+// headers
+//
+// A write goes to a temp file that is synced and then renamed over the target, so a crash never
+// leaves a truncated file behind. Files stored per key (usually a URL) are named after a hash
+// of the key, which gives any key a valid name of fixed length.
+final class FileStore {
+  private FileStore() {}
+
+  // The array stored in `file`, or null when there is no file yet
+  @Nullable
+  static JSONArray readJsonArray(File file) throws IOException, JSONException {
+    if (!file.exists()) {
+      return null;
+    }
+    byte[] bytes = new byte[(int) file.length()];
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+    try {
+      in.readFully(bytes);
+    } finally {
+      in.close();
+    }
+    return new JSONArray(new String(bytes, "UTF-8"));
+  }
+
+  static void writeJsonArray(File file, JSONArray array) throws IOException {
+    File tempFile = new File(file.getPath() + ".tmp");
+    FileOutputStream out = new FileOutputStream(tempFile);
+    try {
+      out.write(array.toString().getBytes("UTF-8"));
+      out.getFD().sync();
+    } finally {
+      out.close();
+    }
+    // Renaming replaces the target on Android's file systems. Where it doesn't, the old file
+    // has to go first, which briefly leaves no file rather than a truncated one.
+    if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+      tempFile.delete();
+      throw new IOException("Could not replace " + file.getPath());
+    }
+  }
+
+  // SHA-1 of `key` in hex, followed by `extension`
+  static String hashedName(String key, String extension) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      byte[] hash = digest.digest(key.getBytes("UTF-8"));
+      StringBuilder name = new StringBuilder();
+      for (byte b : hash) {
+        name.append(String.format("%02x", b & 0xFF));
+      }
+      return name.append(extension).toString();
+    } catch (NoSuchAlgorithmException | IOException e) {
+      return Integer.toHexString(key.hashCode()) + extension;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.johnsonsu.rnsoundplayer;
+
+import java.io.IOException;
+
+// Drops the encoder delay and padding from decoded audio before it reaches `sink`
+//
+// MP3 and AAC encoders add silence in front of the audio (delay) and fill up the last frame
+// (padding). Both are in frames, i.e. samples per channel, as the container's gapless info
+// (LAME header, iTunSMPB) gives them. The padding can only be recognised at the end of the
+// stream, so the last `paddingFrames` frames are always held back and dropped if nothing follows.
+class GaplessTrimmer implements PcmDecoder.Sink {
+  private final PcmDecoder.Sink sink;
+  private final int delayFrames;
+  private final int paddingFrames;
+
+  private boolean formatKnown = false;
+  private int skipSamples = 0;
+  // The newest `heldCount` samples, not passed on yet because they may be padding
+  private short[] held = new short[0];
+  private int heldCount = 0;
+  private short[] output = new short[0];
+
+  GaplessTrimmer(PcmDecoder.Sink sink, int delayFrames, int paddingFrames) {
+    this.sink = sink;
+    this.delayFrames = Math.max(0, delayFrames);
+    this.paddingFrames = Math.max(0, paddingFrames);
+  }
+
+  @Override
+  public void onFormat(int sampleRate, int channelCount) {
+    // A format change mid-stream doesn't restart the delay
+    if (!formatKnown) {
+      formatKnown = true;
+      this.skipSamples = delayFrames * Math.max(1, channelCount);
+      this.held = new short[paddingFrames * Math.max(1, channelCount)];
+    }
+    sink.onFormat(sampleRate, channelCount);
+  }
+
+  @Override
+  public void onSamples(short[] samples, int count) throws IOException {
+    int offset = Math.min(skipSamples, count);
+    skipSamples -= offset;
+    count -= offset;
+    if (count == 0) {
+      return;
+    }
+
+    // Everything but the newest held.length samples of held + new can be passed on
+    int total = heldCount + count;
+    int emit = Math.max(0, total - held.length);
+    if (emit > 0) {
+      if (output.length < emit) {
+        output = new short[emit];
+      }
+      int fromHeld = Math.min(heldCount, emit);
+      System.arraycopy(held, 0, output, 0, fromHeld);
+      System.arraycopy(samples, offset, output, fromHeld, emit - fromHeld);
+      sink.onSamples(output, emit);
+    }
+
+    // Keep the newest samples, shifting what's left of the held ones to the front
+    int keptFromHeld = Math.max(0, heldCount - emit);
+    System.arraycopy(held, heldCount - keptFromHeld, held, 0, keptFromHeld);
+    int fromNew = Math.min(count, held.length - keptFromHeld);
+    System.arraycopy(samples, offset + count - fromNew, held, keptFromHeld, fromNew);
+    heldCount = keptFromHeld + fromNew;
+  }
+}
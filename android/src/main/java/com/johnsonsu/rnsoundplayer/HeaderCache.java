@@ -0,0 +1,256 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.google.android.exoplayer2.C;
+
+// Persistent cache of the first bytes and metadata of streamed tracks, keyed by URL
+//
+// Opening a stream normally waits for StreamingDataSource to fetch HEADER_BUFFER_SIZE bytes
+// before ExoPlayer sees anything. With a cached header the data source hands ExoPlayer the
+// header right away (ExoPlayer sniffs the format and reads Xing/VBRI/seek tables from it) while
+// the connection for the rest of the track is made in the background.
+//
+// Header bytes are stored exactly as the server sent them, so encrypted tracks stay encrypted
+// at rest like offline downloads. Invalidation:
+//   - only responses with an ETag or Last-Modified validator are cached, and the Range request
+//     for the rest of the track carries it in If-Range; a changed track drops its entry
+//   - entries expire after a TTL (7 days by default)
+//   - the least recently used entries are evicted beyond the size bound (2 MB by default)
+class HeaderCache {
+  static final long DEFAULT_MAX_BYTES = 2 * 1024 * 1024;
+  static final long DEFAULT_TTL_MS = 7L * 24 * 60 * 60 * 1000;
+
+  private static final String TAG = "HeaderCache";
+  private static final String INDEX_FILE_NAME = "index.json";
+
+  static class Entry {
+    final String url;
+    final String validator;
+    @Nullable final String mimeType;
+    final long contentLength;
+    final int headerLength;
+    final long createdAt;
+    final File file;
+    volatile long durationMs = C.TIME_UNSET;
+    volatile int bitrate = 0;
+    volatile long lastAccess;
+
+    Entry(String url, String validator, @Nullable String mimeType, long contentLength, int headerLength,
+          long createdAt, File file) {
+      this.url = url;
+      this.validator = validator;
+      this.mimeType = mimeType;
+      this.contentLength = contentLength;
+      this.headerLength = headerLength;
+      this.createdAt = createdAt;
+      this.file = file;
+      this.lastAccess = createdAt;
+    }
+  }
+
+  private final File directory;
+  private final File indexFile;
+  // Access ordered, so iteration starts with the least recently used entry
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long maxBytes = DEFAULT_MAX_BYTES;
+  private long ttlMs = DEFAULT_TTL_MS;
+
+  HeaderCache(File directory) {
+    this.directory = directory;
+    this.indexFile = new File(directory, INDEX_FILE_NAME);
+    directory.mkdirs();
+    loadIndex();
+  }
+
+  synchronized void setOptions(long maxBytes, long ttlMs) {
+    this.maxBytes = Math.max(0, maxBytes);
+    this.ttlMs = Math.max(0, ttlMs);
+    evict();
+    saveIndex();
+  }
+
+  @Nullable
+  synchronized Entry get(String url) {
+    Entry entry = entries.get(url);
+    if (entry == null) {
+      return null;
+    }
+    if (System.currentTimeMillis() - entry.createdAt > ttlMs || !entry.file.exists()) {
+      remove(url);
+      saveIndex();
+      return null;
+    }
+    entry.lastAccess = System.currentTimeMillis();
+    return entry;
+  }
+
+  @Nullable
+  synchronized byte[] readHeader(Entry entry) {
+    try {
+      byte[] header = new byte[entry.headerLength];
+      RandomAccessFile in = new RandomAccessFile(entry.file, "r");
+      try {
+        in.readFully(header);
+      } finally {
+        in.close();
+      }
+      return header;
+    } catch (IOException e) {
+      Log.w(TAG, "Dropping unreadable header for " + entry.url + ": " + e.getMessage());
+      invalidate(entry.url);
+      return null;
+    }
+  }
+
+  synchronized void put(String url, String validator, @Nullable String mimeType, long contentLength, byte[] header) {
+    if (header.length > maxBytes) {
+      return;
+    }
+    Entry entry = new Entry(url, validator, mimeType, contentLength, header.length,
+            System.currentTimeMillis(), new File(directory, fileNameForUrl(url)));
+    try {
+      FileOutputStream out = new FileOutputStream(entry.file);
+      try {
+        out.write(header);
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to store header for " + url + ": " + e.getMessage());
+      entry.file.delete();
+      return;
+    }
+
+    Entry previous = entries.remove(url);
+    if (previous != null) {
+      entry.durationMs = previous.durationMs;
+      entry.bitrate = previous.bitrate;
+    }
+    entries.put(url, entry);
+    evict();
+    saveIndex();
+  }
+
+  // Duration and bitrate as ExoPlayer determined them, once the track has been prepared
+  synchronized void updateMetadata(String url, long durationMs, int bitrate) {
+    Entry entry = entries.get(url);
+    if (entry == null || (entry.durationMs == durationMs && entry.bitrate == bitrate)) {
+      return;
+    }
+    entry.durationMs = durationMs;
+    entry.bitrate = bitrate;
+    saveIndex();
+  }
+
+  synchronized void invalidate(String url) {
+    if (remove(url)) {
+      Log.d(TAG, "Invalidated header for " + url);
+      saveIndex();
+    }
+  }
+
+  synchronized void clear() {
+    for (Entry entry : entries.values()) {
+      entry.file.delete();
+    }
+    entries.clear();
+    saveIndex();
+  }
+
+  private boolean remove(String url) {
+    Entry entry = entries.remove(url);
+    if (entry == null) {
+      return false;
+    }
+    entry.file.delete();
+    return true;
+  }
+
+  private void evict() {
+    long totalBytes = 0;
+    for (Entry entry : entries.values()) {
+      totalBytes += entry.headerLength;
+    }
+    List<String> evicted = new ArrayList<>();
+    for (Map.Entry<String, Entry> item : entries.entrySet()) {
+      if (totalBytes <= maxBytes) {
+        break;
+      }
+      totalBytes -= item.getValue().headerLength;
+      evicted.add(item.getKey());
+    }
+    for (String url : evicted) {
+      remove(url);
+    }
+  }
+
+  private void loadIndex() {
+    try {
+      JSONArray items = FileStore.readJsonArray(indexFile);
+      if (items == null) {
+        return;
+      }
+      for (int i = 0; i < items.length(); i++) {
+        JSONObject item = items.getJSONObject(i);
+        String url = item.getString("url");
+        Entry entry = new Entry(url,
+                item.getString("validator"),
+                item.has("mimeType") ? item.getString("mimeType") : null,
+                item.optLong("contentLength", C.LENGTH_UNSET),
+                item.getInt("headerLength"),
+                item.getLong("createdAt"),
+                new File(directory, fileNameForUrl(url)));
+        entry.durationMs = item.optLong("durationMs", C.TIME_UNSET);
+        entry.bitrate = item.optInt("bitrate", 0);
+        entry.lastAccess = item.optLong("lastAccess", entry.createdAt);
+        entries.put(url, entry);
+      }
+    } catch (IOException | JSONException e) {
+      Log.e(TAG, "Failed to load header cache index: " + e.getMessage());
+    }
+  }
+
+  private void saveIndex() {
+    try {
+      JSONArray items = new JSONArray();
+      for (Entry entry : entries.values()) {
+        JSONObject item = new JSONObject();
+        item.put("url", entry.url);
+        item.put("validator", entry.validator);
+        if (entry.mimeType != null) {
+          item.put("mimeType", entry.mimeType);
+        }
+        item.put("contentLength", entry.contentLength);
+        item.put("headerLength", entry.headerLength);
+        item.put("createdAt", entry.createdAt);
+        item.put("lastAccess", entry.lastAccess);
+        item.put("durationMs", entry.durationMs);
+        item.put("bitrate", entry.bitrate);
+        items.put(item);
+      }
+      FileStore.writeJsonArray(indexFile, items);
+    } catch (IOException | JSONException e) {
+      Log.e(TAG, "Failed to save header cache index: " + e.getMessage());
+    }
+  }
+
+  // The index only stores URLs, entries find their header file by this name
+  private static String fileNameForUrl(String url) {
+    return FileStore.hashedName(url, ".bin");
+  }
+}
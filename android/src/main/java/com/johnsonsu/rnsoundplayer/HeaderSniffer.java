@@ -0,0 +1,189 @@
+package com.johnsonsu.rnsoundplayer;
+
+import com.google.android.exoplayer2.audio.MpegAudioUtil;
+
+// Finds where the container header of a stream ends, from its first (decrypted) bytes
+//
+// StreamingDataSource holds back the start of a stream until HEADER_BUFFER_SIZE bytes have
+// arrived. In fast-start mode it asks this class instead and hands the data to ExoPlayer as soon
+// as everything the extractor needs before the first audio is there:
+//   - MP3: an ID3v2 tag, if any, and the first frame (which carries Xing/VBRI seek tables)
+//   - ADTS AAC: an ID3v2 tag, if any, and the first frame
+//   - MP4/M4A: every box up to and including moov, or up to mdat when moov comes last
+//   - Ogg: the header pages, up to the first page with a granule position
+//   - FLAC: the metadata blocks
+//   - WAV: the chunks up to the data chunk header
+// Anything else is UNKNOWN_FORMAT and keeps the fixed header size.
+class HeaderSniffer {
+  // The format is recognised but its header isn't complete yet
+  static final int NEED_MORE_DATA = -1;
+  static final int UNKNOWN_FORMAT = -2;
+
+  // Enough to tell the formats apart
+  private static final int MIN_SNIFF_BYTES = 12;
+  private static final int ID3_HEADER_SIZE = 10;
+  private static final int ADTS_HEADER_SIZE = 7;
+  private static final int OGG_PAGE_HEADER_SIZE = 27;
+
+  private HeaderSniffer() {}
+
+  // Length of the header at the start of `data`, NEED_MORE_DATA or UNKNOWN_FORMAT
+  static int headerLength(byte[] data, int length) {
+    if (length < MIN_SNIFF_BYTES) {
+      return NEED_MORE_DATA;
+    }
+    if (matches(data, 0, "ID3")) {
+      int tagEnd = ID3_HEADER_SIZE + synchsafeInt(data, 6);
+      if ((data[5] & 0x10) != 0) {
+        // Footer present
+        tagEnd += ID3_HEADER_SIZE;
+      }
+      if (length < tagEnd + ADTS_HEADER_SIZE) {
+        return NEED_MORE_DATA;
+      }
+      return firstFrameEnd(data, tagEnd, length);
+    }
+    if (matches(data, 4, "ftyp")) {
+      return mp4HeaderLength(data, length);
+    }
+    if (matches(data, 0, "OggS")) {
+      return oggHeaderLength(data, length);
+    }
+    if (matches(data, 0, "fLaC")) {
+      return flacHeaderLength(data, length);
+    }
+    if (matches(data, 0, "RIFF") && matches(data, 8, "WAVE")) {
+      return wavHeaderLength(data, length);
+    }
+    return firstFrameEnd(data, 0, length);
+  }
+
+  // End of the MP3 or ADTS frame starting at `offset`
+  private static int firstFrameEnd(byte[] data, int offset, int length) {
+    if (length < offset + ADTS_HEADER_SIZE) {
+      return NEED_MORE_DATA;
+    }
+    int frameSize;
+    if ((data[offset] & 0xFF) == 0xFF && (data[offset + 1] & 0xF6) == 0xF0) {
+      // ADTS: 12 sync bits and layer 0
+      frameSize = ((data[offset + 3] & 0x03) << 11) | ((data[offset + 4] & 0xFF) << 3) | ((data[offset + 5] & 0xE0) >> 5);
+      if (frameSize < ADTS_HEADER_SIZE) {
+        return UNKNOWN_FORMAT;
+      }
+    } else {
+      frameSize = MpegAudioUtil.getFrameSize(readInt(data, offset));
+      if (frameSize <= 0) {
+        return UNKNOWN_FORMAT;
+      }
+    }
+    return length >= offset + frameSize ? offset + frameSize : NEED_MORE_DATA;
+  }
+
+  private static int mp4HeaderLength(byte[] data, int length) {
+    long position = 0;
+    while (position + 8 <= length) {
+      int offset = (int) position;
+      long boxSize = readInt(data, offset) & 0xFFFFFFFFL;
+      int headerSize = 8;
+      if (boxSize == 1) {
+        if (position + 16 > length) {
+          return NEED_MORE_DATA;
+        }
+        boxSize = ((long) readInt(data, offset + 8) << 32) | (readInt(data, offset + 12) & 0xFFFFFFFFL);
+        headerSize = 16;
+      }
+      if (matches(data, offset + 4, "mdat")) {
+        // moov comes after the media, ExoPlayer seeks there itself
+        return offset + headerSize;
+      }
+      if (boxSize == 0 || boxSize < headerSize) {
+        // Runs to the end of the file, or corrupt
+        return UNKNOWN_FORMAT;
+      }
+      long boxEnd = position + boxSize;
+      if (matches(data, offset + 4, "moov")) {
+        return boxEnd <= length ? (int) boxEnd : NEED_MORE_DATA;
+      }
+      position = boxEnd;
+    }
+    return NEED_MORE_DATA;
+  }
+
+  private static int oggHeaderLength(byte[] data, int length) {
+    int position = 0;
+    while (position + OGG_PAGE_HEADER_SIZE <= length) {
+      if (!matches(data, position, "OggS")) {
+        return UNKNOWN_FORMAT;
+      }
+      // Header pages have granule position 0, the first audio page ends the header
+      boolean granuleSet = false;
+      for (int i = 6; i < 14; i++) {
+        granuleSet |= data[position + i] != 0;
+      }
+      if (granuleSet && position > 0) {
+        return position;
+      }
+      int segments = data[position + 26] & 0xFF;
+      if (position + OGG_PAGE_HEADER_SIZE + segments > length) {
+        return NEED_MORE_DATA;
+      }
+      int pageSize = OGG_PAGE_HEADER_SIZE + segments;
+      for (int i = 0; i < segments; i++) {
+        pageSize += data[position + OGG_PAGE_HEADER_SIZE + i] & 0xFF;
+      }
+      position += pageSize;
+    }
+    return NEED_MORE_DATA;
+  }
+
+  private static int flacHeaderLength(byte[] data, int length) {
+    int position = 4;
+    while (position + 4 <= length) {
+      boolean last = (data[position] & 0x80) != 0;
+      int blockSize = ((data[position + 1] & 0xFF) << 16) | ((data[position + 2] & 0xFF) << 8) | (data[position + 3] & 0xFF);
+      position += 4 + blockSize;
+      if (last) {
+        return position <= length ? position : NEED_MORE_DATA;
+      }
+    }
+    return NEED_MORE_DATA;
+  }
+
+  private static int wavHeaderLength(byte[] data, int length) {
+    long position = 12;
+    while (position + 8 <= length) {
+      int offset = (int) position;
+      if (matches(data, offset, "data")) {
+        return offset + 8;
+      }
+      long chunkSize = readIntLittleEndian(data, offset + 4) & 0xFFFFFFFFL;
+      // Chunks are padded to an even size
+      position += 8 + chunkSize + (chunkSize & 1);
+    }
+    return NEED_MORE_DATA;
+  }
+
+  private static boolean matches(byte[] data, int offset, String tag) {
+    for (int i = 0; i < tag.length(); i++) {
+      if (data[offset + i] != (byte) tag.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int readInt(byte[] data, int offset) {
+    return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+            | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+  }
+
+  private static int readIntLittleEndian(byte[] data, int offset) {
+    return (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8)
+            | ((data[offset + 2] & 0xFF) << 16) | ((data[offset + 3] & 0xFF) << 24);
+  }
+
+  private static int synchsafeInt(byte[] data, int offset) {
+    return ((data[offset] & 0x7F) << 21) | ((data[offset + 1] & 0x7F) << 14)
+            | ((data[offset + 2] & 0x7F) << 7) | (data[offset + 3] & 0x7F);
+  }
+}
@@ -0,0 +1,129 @@
+package com.johnsonsu.rnsoundplayer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.TeeAudioProcessor;
+
+// Live level metering on the decoded PCM of the current player
+//
+// Installed as the sink of a TeeAudioProcessor in the audio sink's processing chain, so it sees
+// every decoded buffer on the playback thread just before it is written to the AudioTrack.
+// Samples are reduced to one RMS and one peak value (0..1, across all channels) per interval,
+// and values are handed to the listener in batches to keep the number of bridge events low.
+class LevelMeter implements TeeAudioProcessor.AudioBufferSink {
+  static final int DEFAULT_INTERVAL_MS = 50;
+  static final int DEFAULT_BATCH_SIZE = 4;
+
+  interface Listener {
+    // Called on the playback thread, the arrays are owned by the listener
+    void onLevels(float[] rms, float[] peak, int intervalMs);
+  }
+
+  private final Listener listener;
+
+  private boolean enabled = false;
+  private int intervalMs = DEFAULT_INTERVAL_MS;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  // Current PCM format, set by flush()
+  private int sampleRate = 0;
+  private int channelCount = 0;
+  private int encoding = C.ENCODING_INVALID;
+
+  // Current window
+  private int framesPerWindow = 0;
+  private int framesInWindow = 0;
+  private double sumOfSquares = 0;
+  private float windowPeak = 0;
+
+  // Current batch
+  private float[] rmsBatch = new float[DEFAULT_BATCH_SIZE];
+  private float[] peakBatch = new float[DEFAULT_BATCH_SIZE];
+  private int batchCount = 0;
+
+  LevelMeter(Listener listener) {
+    this.listener = listener;
+  }
+
+  synchronized void configure(boolean enabled, int intervalMs, int batchSize) {
+    this.enabled = enabled;
+    this.intervalMs = intervalMs > 0 ? intervalMs : DEFAULT_INTERVAL_MS;
+    this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    this.rmsBatch = new float[this.batchSize];
+    this.peakBatch = new float[this.batchSize];
+    resetWindow();
+  }
+
+  @Override
+  public synchronized void flush(int sampleRateHz, int channelCount, int encoding) {
+    this.sampleRate = sampleRateHz;
+    this.channelCount = channelCount;
+    this.encoding = encoding;
+    resetWindow();
+  }
+
+  @Override
+  public synchronized void handleBuffer(ByteBuffer buffer) {
+    if (!enabled || framesPerWindow == 0) {
+      return;
+    }
+
+    // The tee hands us a read-only view, which is always big-endian regardless of the source
+    ByteBuffer samples = buffer.order(ByteOrder.nativeOrder());
+    if (encoding == C.ENCODING_PCM_16BIT) {
+      while (samples.remaining() >= 2 * channelCount) {
+        for (int channel = 0; channel < channelCount; channel++) {
+          addSample(samples.getShort() / 32768f);
+        }
+        endFrame();
+      }
+    } else if (encoding == C.ENCODING_PCM_FLOAT) {
+      while (samples.remaining() >= 4 * channelCount) {
+        for (int channel = 0; channel < channelCount; channel++) {
+          addSample(samples.getFloat());
+        }
+        endFrame();
+      }
+    }
+    // Other encodings (24/32-bit integer PCM) are rare for compressed sources and are not metered
+  }
+
+  private void addSample(float sample) {
+    float magnitude = Math.abs(sample);
+    sumOfSquares += sample * sample;
+    if (magnitude > windowPeak) {
+      windowPeak = magnitude;
+    }
+  }
+
+  private void endFrame() {
+    framesInWindow++;
+    if (framesInWindow < framesPerWindow) {
+      return;
+    }
+
+    rmsBatch[batchCount] = (float) Math.min(1.0, Math.sqrt(sumOfSquares / (framesInWindow * channelCount)));
+    peakBatch[batchCount] = Math.min(1f, windowPeak);
+    batchCount++;
+    framesInWindow = 0;
+    sumOfSquares = 0;
+    windowPeak = 0;
+
+    if (batchCount == batchSize) {
+      listener.onLevels(Arrays.copyOf(rmsBatch, batchCount), Arrays.copyOf(peakBatch, batchCount), intervalMs);
+      batchCount = 0;
+    }
+  }
+
+  private void resetWindow() {
+    boolean supported = encoding == C.ENCODING_PCM_16BIT || encoding == C.ENCODING_PCM_FLOAT;
+    framesPerWindow = supported && channelCount > 0 ? Math.max(1, sampleRate * intervalMs / 1000) : 0;
+    framesInWindow = 0;
+    sumOfSquares = 0;
+    windowPeak = 0;
+    batchCount = 0;
+  }
+}
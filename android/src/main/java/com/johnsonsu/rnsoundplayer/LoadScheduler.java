@@ -0,0 +1,110 @@
+package com.johnsonsu.rnsoundplayer;
+
+import java.io.InterruptedIOException;
+
+// Arbitrates network bandwidth between the playing track and background loaders
+//
+// Every network read in the module (StreamingDataSource, offline downloads) asks the scheduler
+// first. Reads for active playback are never delayed. Background work is held back according to
+// the foreground player's buffer, which the module reports a few times per second:
+//
+//   buffer < low watermark   -> background work is paused
+//   buffer < high watermark  -> background work is throttled
+//   otherwise                -> everything runs freely
+//
+// When nothing is playing there is no foreground buffer to protect and nothing is held back.
+// Under memory pressure the player's buffer ceiling drops below the watermarks, so they are
+// scaled down with it (see setBufferCeilingMs): the buffer can still reach the high watermark.
+class LoadScheduler {
+  static final int PRIORITY_PLAYBACK = 0;
+  static final int PRIORITY_BACKGROUND = 1;
+
+  static final long DEFAULT_LOW_WATERMARK_MS = 2000;
+  static final long DEFAULT_HIGH_WATERMARK_MS = 6000;
+  static final long DEFAULT_BACKGROUND_BYTES_PER_SECOND = 64 * 1024;
+
+  // Throttled reads are sliced so a single read never sleeps for more than this
+  private static final long THROTTLE_SLICE_MS = 100;
+  // Paused loaders re-check at least this often in case a foreground update was missed
+  private static final long PAUSE_RECHECK_MS = 500;
+
+  private long lowWatermarkMs = DEFAULT_LOW_WATERMARK_MS;
+  private long highWatermarkMs = DEFAULT_HIGH_WATERMARK_MS;
+  private long backgroundBytesPerSecond = DEFAULT_BACKGROUND_BYTES_PER_SECOND;
+  // Most the foreground player buffers, 0 when it isn't lowered
+  private long bufferCeilingMs = 0;
+
+  private boolean foregroundActive = false;
+  private long foregroundBufferMs = 0;
+
+  private final TimeSource timeSource;
+
+  LoadScheduler() {
+    this(TimeSource.SYSTEM);
+  }
+
+  LoadScheduler(TimeSource timeSource) {
+    this.timeSource = timeSource;
+  }
+
+  synchronized void setOptions(long lowWatermarkMs, long highWatermarkMs, long backgroundBytesPerSecond) {
+    this.lowWatermarkMs = Math.max(0, lowWatermarkMs);
+    this.highWatermarkMs = Math.max(this.lowWatermarkMs, highWatermarkMs);
+    this.backgroundBytesPerSecond = Math.max(1024, backgroundBytesPerSecond);
+    notifyAll();
+  }
+
+  // The foreground player's lowered buffer ceiling, 0 when it is back to normal. Watermarks
+  // above a third and nine tenths of it are lowered to that.
+  synchronized void setBufferCeilingMs(long bufferCeilingMs) {
+    this.bufferCeilingMs = Math.max(0, bufferCeilingMs);
+    notifyAll();
+  }
+
+  private long effectiveLowWatermarkMs() {
+    return bufferCeilingMs > 0 ? Math.min(lowWatermarkMs, bufferCeilingMs / 3) : lowWatermarkMs;
+  }
+
+  private long effectiveHighWatermarkMs() {
+    return bufferCeilingMs > 0 ? Math.min(highWatermarkMs, bufferCeilingMs * 9 / 10) : highWatermarkMs;
+  }
+
+  // Called by the module with the foreground player's state
+  synchronized void updateForeground(boolean active, long bufferedMs) {
+    foregroundActive = active;
+    foregroundBufferMs = bufferedMs;
+    notifyAll();
+  }
+
+  // Blocks until a loader of the given priority may read from the network and returns how many
+  // of the requested bytes it may read now
+  int acquire(int priority, int requestedLength) throws InterruptedIOException {
+    if (priority == PRIORITY_PLAYBACK || requestedLength <= 0) {
+      return requestedLength;
+    }
+
+    long throttleDelayMs = 0;
+    int allowedLength = requestedLength;
+    try {
+      synchronized (this) {
+        while (foregroundActive && foregroundBufferMs < effectiveLowWatermarkMs()) {
+          wait(PAUSE_RECHECK_MS);
+        }
+
+        if (priority == PRIORITY_BACKGROUND && foregroundActive && foregroundBufferMs < effectiveHighWatermarkMs()) {
+          long sliceBytes = Math.max(1, backgroundBytesPerSecond * THROTTLE_SLICE_MS / 1000);
+          allowedLength = (int) Math.min(requestedLength, sliceBytes);
+          throttleDelayMs = allowedLength * 1000L / backgroundBytesPerSecond;
+        }
+      }
+
+      if (throttleDelayMs > 0) {
+        timeSource.sleep(throttleDelayMs);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for network priority");
+    }
+    return allowedLength;
+  }
+}
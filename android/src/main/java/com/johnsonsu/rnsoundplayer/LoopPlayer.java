@@ -0,0 +1,115 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.annotation.TargetApi;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Handler;
+import android.util.Log;
+
+import java.io.IOException;
+
+// Loops a decoded track from memory, sample-seamlessly
+//
+// The PCM goes into a static AudioTrack once and loop points make the mixer wrap around
+// inside the buffer, so repeats involve no reads, no decoding and no gap at the seam. The loop
+// covers the whole buffer, which is only the audio once PcmDecoder has trimmed the encoder delay
+// and padding. Loop boundaries are reported through periodic position notifications, one per pass.
+@TargetApi(Build.VERSION_CODES.M)
+class LoopPlayer {
+  interface Listener {
+    // remaining is negative for an unbounded loop
+    void onLoop(int iteration, int remaining);
+    void onFinished();
+  }
+
+  private final long durationMs;
+  private final Listener listener;
+  private final AudioTrack track;
+  private final int loops;
+  private int completed = 0;
+  private boolean released = false;
+
+  // Plays `pcm` loops + 1 times, or until stop() for a negative `loops`. Callbacks run on `handler`.
+  LoopPlayer(PcmBuffer pcm, int loops, float volume, Handler handler, Listener listener) throws IOException {
+    this.durationMs = pcm.getDurationMs();
+    this.loops = loops;
+    this.listener = listener;
+
+    int frames = pcm.getFrameCount();
+    if (frames == 0) {
+      throw new IOException("Track has no audio");
+    }
+    try {
+      this.track = new AudioTrack.Builder()
+              .setAudioAttributes(new AudioAttributes.Builder()
+                      .setUsage(AudioAttributes.USAGE_MEDIA)
+                      .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                      .build())
+              .setAudioFormat(new AudioFormat.Builder()
+                      .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                      .setSampleRate(pcm.getSampleRate())
+                      .setChannelMask(pcm.getChannelCount() == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO)
+                      .build())
+              .setTransferMode(AudioTrack.MODE_STATIC)
+              .setBufferSizeInBytes(pcm.getLength() * 2)
+              .build();
+    } catch (IllegalArgumentException | UnsupportedOperationException e) {
+      throw new IOException("Could not create audio track: " + e.getMessage(), e);
+    }
+
+    track.write(pcm.getSamples(), 0, pcm.getLength());
+    if (loops != 0 && track.setLoopPoints(0, frames, loops < 0 ? -1 : loops) != AudioTrack.SUCCESS) {
+      track.release();
+      throw new IOException("Could not set loop points");
+    }
+    track.setVolume(volume);
+    // The head position keeps counting across loop passes, so one period is one pass
+    track.setPositionNotificationPeriod(frames);
+    track.setPlaybackPositionUpdateListener(new AudioTrack.OnPlaybackPositionUpdateListener() {
+      @Override
+      public void onMarkerReached(AudioTrack audioTrack) {
+      }
+
+      @Override
+      public void onPeriodicNotification(AudioTrack audioTrack) {
+        onPassCompleted();
+      }
+    }, handler);
+  }
+
+  void play() {
+    track.play();
+  }
+
+  long getDurationMs() {
+    return durationMs;
+  }
+
+  void stop() {
+    if (released) {
+      return;
+    }
+    released = true;
+    try {
+      track.stop();
+    } catch (IllegalStateException e) {
+      Log.w("LoopPlayer", "Error stopping track: " + e.getMessage());
+    }
+    track.release();
+  }
+
+  private void onPassCompleted() {
+    if (released) {
+      return;
+    }
+    completed++;
+    if (loops >= 0 && completed > loops) {
+      stop();
+      listener.onFinished();
+      return;
+    }
+    listener.onLoop(completed, loops < 0 ? -1 : loops - completed);
+  }
+}
@@ -0,0 +1,92 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Turns trim-memory callbacks and backgrounding into a single memory pressure level
+//
+// Components that hold memory the module can live without (buffers, caches, an idle player)
+// register a Trimmable and shed it according to the level:
+//
+//   PRESSURE_NONE        -> in the foreground, restore normal limits
+//   PRESSURE_BACKGROUND  -> app hidden, keep the playing track going but hold less
+//   PRESSURE_MODERATE    -> the system is low on memory or the app is in the LRU list
+//   PRESSURE_CRITICAL    -> the process is about to be killed, drop everything droppable
+//
+// Callbacks arrive on the main thread, Trimmables are responsible for their own threading.
+class MemoryGovernor implements ComponentCallbacks2 {
+  static final int PRESSURE_NONE = 0;
+  static final int PRESSURE_BACKGROUND = 1;
+  static final int PRESSURE_MODERATE = 2;
+  static final int PRESSURE_CRITICAL = 3;
+
+  interface Trimmable {
+    void onTrim(int pressure);
+  }
+
+  private final CopyOnWriteArrayList<Trimmable> trimmables = new CopyOnWriteArrayList<>();
+  private volatile int pressure = PRESSURE_NONE;
+
+  void register(Trimmable trimmable) {
+    trimmables.addIfAbsent(trimmable);
+  }
+
+  int getPressure() {
+    return pressure;
+  }
+
+  void onHostResume() {
+    setPressure(PRESSURE_NONE);
+  }
+
+  void onHostPause() {
+    if (pressure < PRESSURE_BACKGROUND) {
+      setPressure(PRESSURE_BACKGROUND);
+    }
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    int newPressure;
+    if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+      newPressure = PRESSURE_CRITICAL;
+    } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW
+            || level == TRIM_MEMORY_RUNNING_MODERATE) {
+      newPressure = PRESSURE_MODERATE;
+    } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+      newPressure = PRESSURE_BACKGROUND;
+    } else {
+      return;
+    }
+    // Trim levels only ever escalate until the app comes back to the foreground
+    if (newPressure > pressure) {
+      setPressure(newPressure);
+    } else {
+      dispatch(pressure);
+    }
+  }
+
+  @Override
+  public void onLowMemory() {
+    setPressure(PRESSURE_CRITICAL);
+  }
+
+  @Override
+  public void onConfigurationChanged(Configuration newConfig) {
+  }
+
+  private void setPressure(int newPressure) {
+    Log.d("MemoryGovernor", "Memory pressure: " + pressure + " -> " + newPressure);
+    pressure = newPressure;
+    dispatch(newPressure);
+  }
+
+  private void dispatch(int level) {
+    for (Trimmable trimmable : trimmables) {
+      trimmable.onTrim(level);
+    }
+  }
+}
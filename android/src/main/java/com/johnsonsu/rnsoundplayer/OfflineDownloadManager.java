@@ -0,0 +1,432 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.google.android.exoplayer2.C;
+
+// Offline download engine for streamed tracks
+//
+// Tracks are downloaded sequentially from byte 0 and stored exactly as the server sends them,
+// so encrypted tracks stay encrypted at rest and are decrypted at playback time by
+// StreamingDataSource with the same AES-CTR offset logic it uses for network reads.
+// Because the downloaded region is always a prefix of the track, a partial download is
+// playable: StreamingDataSource serves [0, downloadedBytes) from disk and issues a Range
+// request for whatever hasn't arrived yet.
+class OfflineDownloadManager {
+  static final String STATE_QUEUED = "queued";
+  static final String STATE_DOWNLOADING = "downloading";
+  static final String STATE_PAUSED = "paused";
+  static final String STATE_COMPLETED = "completed";
+  static final String STATE_FAILED = "failed";
+
+  private static final String TAG = "OfflineDownloadManager";
+  private static final String INDEX_FILE_NAME = "index.json";
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+  private static final long PROGRESS_INTERVAL_MS = 500;
+  private static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 2;
+
+  interface Listener {
+    void onProgress(Download download);
+    void onStateChanged(Download download, @Nullable String error);
+  }
+
+  static class Download {
+    final String url;
+    final File file;
+    volatile long totalBytes = C.LENGTH_UNSET;
+    volatile long downloadedBytes = 0;
+    volatile String state = STATE_QUEUED;
+    @Nullable volatile String etag;
+
+    // Guarded by the manager
+    @Nullable private Future<?> task;
+    // Guarded by the download itself. A cancelled task can still be inside a read when the next
+    // one starts, so every task gets its own generation and stops touching the file and the
+    // connection once the generation moved on.
+    private int generation = 0;
+    @Nullable private HttpURLConnection connection;
+
+    Download(String url, File file) {
+      this.url = url;
+      this.file = file;
+    }
+
+    boolean isCompleted() {
+      return STATE_COMPLETED.equals(state);
+    }
+  }
+
+  private final File directory;
+  private final File indexFile;
+  private final Listener listener;
+  private final LoadScheduler loadScheduler;
+  private final Map<String, Download> downloads = new LinkedHashMap<>();
+  private final ThreadPoolExecutor executor;
+  // Written under the manager lock, read by the download threads without it
+  private volatile long maxStorageBytes = 0; // 0 means unlimited
+
+  OfflineDownloadManager(File directory, LoadScheduler loadScheduler, Listener listener) {
+    this.directory = directory;
+    this.indexFile = new File(directory, INDEX_FILE_NAME);
+    this.loadScheduler = loadScheduler;
+    this.listener = listener;
+    this.executor = new ThreadPoolExecutor(
+            DEFAULT_MAX_CONCURRENT_DOWNLOADS,
+            DEFAULT_MAX_CONCURRENT_DOWNLOADS,
+            30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+              @Override
+              public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "RNSoundPlayer-download");
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+    this.executor.allowCoreThreadTimeOut(true);
+
+    if (!directory.exists()) {
+      directory.mkdirs();
+    }
+    loadIndex();
+  }
+
+  synchronized void setOptions(int maxConcurrentDownloads, long maxStorageBytes) {
+    if (maxConcurrentDownloads > 0) {
+      // Grow the maximum first so the core size is never larger than it
+      if (maxConcurrentDownloads > executor.getMaximumPoolSize()) {
+        executor.setMaximumPoolSize(maxConcurrentDownloads);
+        executor.setCorePoolSize(maxConcurrentDownloads);
+      } else {
+        executor.setCorePoolSize(maxConcurrentDownloads);
+        executor.setMaximumPoolSize(maxConcurrentDownloads);
+      }
+    }
+    this.maxStorageBytes = Math.max(0, maxStorageBytes);
+  }
+
+  synchronized Download start(String url) {
+    Download download = downloads.get(url);
+    if (download == null) {
+      download = new Download(url, new File(directory, fileNameForUrl(url)));
+      downloads.put(url, download);
+    }
+    if (download.isCompleted() || download.task != null) {
+      return download;
+    }
+    enqueue(download);
+    return download;
+  }
+
+  synchronized void pause(String url) {
+    Download download = downloads.get(url);
+    if (download == null || download.isCompleted() || download.task == null) {
+      return;
+    }
+    cancelTask(download);
+    setState(download, STATE_PAUSED, null);
+  }
+
+  synchronized void resume(String url) {
+    Download download = downloads.get(url);
+    if (download == null || download.isCompleted() || download.task != null) {
+      return;
+    }
+    enqueue(download);
+  }
+
+  // The track changed on the server after `url` started downloading, so the bytes on disk belong
+  // to the old version. Drops them and downloads again, unless the download is paused or failed.
+  synchronized void restart(String url) {
+    Download download = downloads.get(url);
+    if (download == null || download.isCompleted()) {
+      return;
+    }
+    boolean running = download.task != null;
+    cancelTask(download);
+    synchronized (download) {
+      download.downloadedBytes = 0;
+      download.totalBytes = C.LENGTH_UNSET;
+      download.etag = null;
+      download.file.delete();
+    }
+    Log.d(TAG, "Track changed on the server, restarting download: " + url);
+    if (running) {
+      enqueue(download);
+    } else {
+      saveIndex();
+      listener.onProgress(download);
+    }
+  }
+
+  synchronized boolean remove(String url) {
+    Download download = downloads.remove(url);
+    if (download == null) {
+      return false;
+    }
+    cancelTask(download);
+    download.file.delete();
+    saveIndex();
+    return true;
+  }
+
+  // Stops every running download and the download threads, running downloads are resumable
+  // after a restart
+  synchronized void shutdown() {
+    for (Download download : downloads.values()) {
+      cancelTask(download);
+    }
+    executor.shutdownNow();
+  }
+
+  // Looked up by StreamingDataSource on every open, so it must stay cheap
+  @Nullable
+  synchronized Download getDownload(String url) {
+    return downloads.get(url);
+  }
+
+  synchronized List<Download> getDownloads() {
+    return new ArrayList<>(downloads.values());
+  }
+
+  synchronized long getUsedBytes() {
+    long used = 0;
+    for (Download download : downloads.values()) {
+      used += download.downloadedBytes;
+    }
+    return used;
+  }
+
+  private void enqueue(final Download download) {
+    setState(download, STATE_QUEUED, null);
+    final int generation;
+    synchronized (download) {
+      generation = ++download.generation;
+    }
+    download.task = executor.submit(new Runnable() {
+      @Override
+      public void run() {
+        runDownload(download, generation);
+      }
+    });
+  }
+
+  private void cancelTask(Download download) {
+    if (download.task != null) {
+      download.task.cancel(true);
+      download.task = null;
+    }
+    HttpURLConnection connection;
+    synchronized (download) {
+      download.generation++;
+      connection = download.connection;
+    }
+    // Blocking socket reads don't react to interrupts, so drop the connection as well
+    if (connection != null) {
+      connection.disconnect();
+    }
+  }
+
+  // Throws once the task running `generation` was cancelled or replaced. Call with the download locked.
+  private static void checkCurrent(Download download, int generation) throws IOException {
+    if (download.generation != generation) {
+      throw new IOException("Download cancelled");
+    }
+  }
+
+  private void runDownload(Download download, int generation) {
+    synchronized (this) {
+      if (Thread.currentThread().isInterrupted() || !STATE_QUEUED.equals(download.state)
+              || download.generation != generation) {
+        return;
+      }
+      setState(download, STATE_DOWNLOADING, null);
+    }
+
+    HttpURLConnection connection = null;
+    try {
+      long offset = download.file.exists() ? download.file.length() : 0;
+      connection = StreamingDataSource.createConnection(download.url);
+      if (offset > 0) {
+        connection.setRequestProperty("Range", StreamingDataSource.buildRangeRequestHeader(offset, C.LENGTH_UNSET));
+        // If the track changed on the server we get a 200 with the new content instead of a 206
+        if (download.etag != null) {
+          connection.setRequestProperty("If-Range", download.etag);
+        }
+      }
+      synchronized (download) {
+        checkCurrent(download, generation);
+        download.connection = connection;
+      }
+      connection.connect();
+
+      int responseCode = connection.getResponseCode();
+      if (responseCode < 200 || responseCode > 299) {
+        throw new IOException(String.format("HTTP error: %d %s for URL: %s",
+                responseCode, connection.getResponseMessage(), download.url));
+      }
+      if (responseCode != HttpURLConnection.HTTP_PARTIAL && offset > 0) {
+        Log.d(TAG, "Server ignored Range request, restarting download: " + download.url);
+        offset = 0;
+      }
+
+      long contentLength = connection.getContentLength();
+      synchronized (download) {
+        checkCurrent(download, generation);
+        download.totalBytes = contentLength >= 0 ? offset + contentLength : C.LENGTH_UNSET;
+        download.etag = connection.getHeaderField("ETag");
+        download.downloadedBytes = offset;
+      }
+
+      long quota = maxStorageBytes;
+      if (quota > 0 && download.totalBytes != C.LENGTH_UNSET
+              && getUsedBytes() - offset + download.totalBytes > quota) {
+        throw new IOException("Storage quota exceeded");
+      }
+
+      RandomAccessFile out = new RandomAccessFile(download.file, "rw");
+      try {
+        synchronized (download) {
+          checkCurrent(download, generation);
+          out.setLength(offset);
+          out.seek(offset);
+        }
+        copy(connection.getInputStream(), out, download, generation);
+      } finally {
+        out.close();
+      }
+
+      synchronized (this) {
+        if (download.generation != generation) {
+          return;
+        }
+        download.task = null;
+        if (download.totalBytes == C.LENGTH_UNSET) {
+          download.totalBytes = download.downloadedBytes;
+        }
+        setState(download, STATE_COMPLETED, null);
+      }
+      listener.onProgress(download);
+    } catch (IOException e) {
+      synchronized (this) {
+        // A paused or removed download is cancelled by closing its connection, which surfaces here
+        if (download.generation != generation || Thread.currentThread().isInterrupted()) {
+          return;
+        }
+        download.task = null;
+        Log.e(TAG, "Download failed for URL: " + download.url, e);
+        setState(download, STATE_FAILED, e.getMessage());
+      }
+    } finally {
+      synchronized (download) {
+        // The next task may have set its own connection already
+        if (download.connection == connection) {
+          download.connection = null;
+        }
+      }
+      if (connection != null) {
+        connection.disconnect();
+      }
+    }
+  }
+
+  private void copy(InputStream in, RandomAccessFile out, Download download, int generation) throws IOException {
+    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+    long lastProgressTime = 0;
+    int bytesRead;
+    // Downloads are background work and yield to the playing track
+    while ((bytesRead = in.read(buffer, 0, loadScheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, buffer.length))) != -1) {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new IOException("Download cancelled");
+      }
+      long quota = maxStorageBytes;
+      if (quota > 0 && getUsedBytes() + bytesRead > quota) {
+        throw new IOException("Storage quota exceeded");
+      }
+      synchronized (download) {
+        checkCurrent(download, generation);
+        out.write(buffer, 0, bytesRead);
+        // Publish only after the write so readers never see bytes that aren't on disk yet
+        download.downloadedBytes += bytesRead;
+      }
+
+      long now = System.currentTimeMillis();
+      if (now - lastProgressTime >= PROGRESS_INTERVAL_MS) {
+        lastProgressTime = now;
+        listener.onProgress(download);
+      }
+    }
+  }
+
+  private void setState(Download download, String state, @Nullable String error) {
+    download.state = state;
+    saveIndex();
+    listener.onStateChanged(download, error);
+  }
+
+  private void loadIndex() {
+    try {
+      JSONArray entries = FileStore.readJsonArray(indexFile);
+      if (entries == null) {
+        return;
+      }
+      for (int i = 0; i < entries.length(); i++) {
+        JSONObject entry = entries.getJSONObject(i);
+        String url = entry.getString("url");
+        Download download = new Download(url, new File(directory, fileNameForUrl(url)));
+        download.totalBytes = entry.optLong("totalBytes", C.LENGTH_UNSET);
+        download.etag = entry.has("etag") ? entry.getString("etag") : null;
+        // The file on disk is the source of truth for how much was written before the process died
+        download.downloadedBytes = download.file.exists() ? download.file.length() : 0;
+        String state = entry.getString("state");
+        download.state = STATE_COMPLETED.equals(state) || STATE_FAILED.equals(state) ? state : STATE_PAUSED;
+        downloads.put(url, download);
+      }
+    } catch (IOException | JSONException e) {
+      Log.e(TAG, "Failed to load download index: " + e.getMessage());
+    }
+  }
+
+  private void saveIndex() {
+    try {
+      JSONArray entries = new JSONArray();
+      for (Download download : downloads.values()) {
+        JSONObject entry = new JSONObject();
+        entry.put("url", download.url);
+        entry.put("totalBytes", download.totalBytes);
+        entry.put("state", download.state);
+        if (download.etag != null) {
+          entry.put("etag", download.etag);
+        }
+        entries.put(entry);
+      }
+      FileStore.writeJsonArray(indexFile, entries);
+    } catch (IOException | JSONException e) {
+      Log.e(TAG, "Failed to save download index: " + e.getMessage());
+    }
+  }
+
+  private static String fileNameForUrl(String url) {
+    return FileStore.hashedName(url, ".bin");
+  }
+}
@@ -0,0 +1,223 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+
+// Picks and remembers the origin a track is streamed from, out of an ordered list of mirrors
+//
+// With a race width above 1, opening a connection hedges across the top candidates: the first
+// candidate starts immediately and each following one starts only if nothing has answered
+// within the hedge delay. Whichever delivers its first byte first wins, the others are closed,
+// and the winner moves to the front so later opens (seeks) go straight to it. Origins that fail
+// move to the back of the list, which is what StreamingDataSource relies on to fail over
+// mid-stream from the current byte offset.
+//
+// One selector is shared by all data sources of a track, so what it learns survives seeks.
+class OriginSelector {
+  static final int DEFAULT_RACE_WIDTH = 2;
+  static final long DEFAULT_HEDGE_DELAY_MS = 300;
+
+  private static final ExecutorService RACE_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "RNSoundPlayer-origin");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  // An opened origin whose response is 2xx and, when racing, whose first byte has arrived
+  static class Connection {
+    final String url;
+    final HttpURLConnection connection;
+    final InputStream inputStream;
+    final long contentLength;
+
+    Connection(String url, HttpURLConnection connection, InputStream inputStream, long contentLength) {
+      this.url = url;
+      this.connection = connection;
+      this.inputStream = inputStream;
+      this.contentLength = contentLength;
+    }
+
+    void close() {
+      try {
+        inputStream.close();
+      } catch (IOException e) {
+        // Closing a losing or failed origin, nothing to report
+      }
+      connection.disconnect();
+    }
+  }
+
+  interface Opener {
+    Connection open(String url) throws IOException;
+  }
+
+  private final List<String> origins;
+  private final int raceWidth;
+  private final long hedgeDelayMs;
+  private final TimeSource timeSource;
+
+  OriginSelector(List<String> origins, int raceWidth, long hedgeDelayMs) {
+    this(origins, raceWidth, hedgeDelayMs, TimeSource.SYSTEM);
+  }
+
+  OriginSelector(List<String> origins, int raceWidth, long hedgeDelayMs, TimeSource timeSource) {
+    this.origins = new ArrayList<>(origins);
+    this.raceWidth = Math.max(1, raceWidth);
+    this.hedgeDelayMs = Math.max(0, hedgeDelayMs);
+    this.timeSource = timeSource;
+  }
+
+  synchronized boolean hasAlternatives() {
+    return origins.size() > 1;
+  }
+
+  synchronized void markPreferred(String url) {
+    if (origins.remove(url)) {
+      origins.add(0, url);
+    }
+  }
+
+  synchronized void markFailed(String url) {
+    if (origins.remove(url)) {
+      origins.add(url);
+    }
+  }
+
+  private synchronized List<String> candidates() {
+    return new ArrayList<>(origins);
+  }
+
+  Connection connect(Opener opener) throws IOException {
+    List<String> candidates = candidates();
+    if (raceWidth <= 1 || candidates.size() <= 1) {
+      return connectSequentially(opener, candidates);
+    }
+    return new Race(opener, candidates).run();
+  }
+
+  private Connection connectSequentially(Opener opener, List<String> candidates) throws IOException {
+    IOException lastError = null;
+    for (String candidate : candidates) {
+      try {
+        Connection connection = opener.open(candidate);
+        markPreferred(candidate);
+        return connection;
+      } catch (IOException e) {
+        if (isInterruption(e)) {
+          throw e;
+        }
+        Log.w("OriginSelector", "Origin failed: " + candidate + " (" + e.getMessage() + ")");
+        markFailed(candidate);
+        lastError = e;
+      }
+    }
+    throw lastError;
+  }
+
+  // Socket timeouts are InterruptedIOExceptions too, but they mean the origin is too slow
+  static boolean isInterruption(IOException e) {
+    return e instanceof InterruptedIOException && !(e instanceof java.net.SocketTimeoutException);
+  }
+
+  // One hedged connection attempt across the candidates
+  private class Race {
+    private final Opener opener;
+    private final List<String> candidates;
+    @Nullable private Connection winner;
+    @Nullable private IOException lastError;
+    private boolean finished = false;
+    private int started = 0;
+    private int failed = 0;
+
+    Race(Opener opener, List<String> candidates) {
+      this.opener = opener;
+      this.candidates = candidates;
+    }
+
+    synchronized Connection run() throws IOException {
+      startNext();
+      long nextHedgeTime = timeSource.currentTimeMillis() + hedgeDelayMs;
+      try {
+        while (winner == null) {
+          if (failed == started) {
+            // Everything started so far failed: try the next origin right away, or give up
+            if (started == candidates.size()) {
+              throw lastError;
+            }
+            startNext();
+            nextHedgeTime = timeSource.currentTimeMillis() + hedgeDelayMs;
+            continue;
+          }
+
+          long now = timeSource.currentTimeMillis();
+          if (started - failed < raceWidth && started < candidates.size() && now >= nextHedgeTime) {
+            startNext();
+            nextHedgeTime = now + hedgeDelayMs;
+            continue;
+          }
+
+          boolean canHedge = started - failed < raceWidth && started < candidates.size();
+          wait(canHedge ? Math.max(1, nextHedgeTime - now) : 0);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while connecting to origins");
+      } finally {
+        // Late finishers close their own connections from now on
+        finished = true;
+      }
+
+      markPreferred(winner.url);
+      return winner;
+    }
+
+    private void startNext() {
+      final String candidate = candidates.get(started++);
+      RACE_EXECUTOR.execute(new Runnable() {
+        @Override
+        public void run() {
+          attempt(candidate);
+        }
+      });
+    }
+
+    private void attempt(String candidate) {
+      Connection connection;
+      try {
+        connection = opener.open(candidate);
+      } catch (IOException e) {
+        Log.w("OriginSelector", "Origin failed: " + candidate + " (" + e.getMessage() + ")");
+        markFailed(candidate);
+        synchronized (this) {
+          failed++;
+          lastError = e;
+          notifyAll();
+        }
+        return;
+      }
+
+      synchronized (this) {
+        if (winner == null && !finished) {
+          winner = connection;
+          Log.d("OriginSelector", "Fastest origin: " + candidate);
+          notifyAll();
+          return;
+        }
+      }
+      connection.close();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.johnsonsu.rnsoundplayer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Collects a decoded track in memory as interleaved 16-bit PCM, mono or stereo
+//
+// Tracks with more than two channels keep their first two. Decoding fails once the track
+// outgrows maxBytes, so a long track can't take the app's memory with it.
+class PcmBuffer implements PcmDecoder.Sink {
+  private final long maxBytes;
+
+  private int sampleRate = 0;
+  private int channelCount = 0;
+  private int sourceChannelCount = 0;
+  private short[] samples = new short[16 * 1024];
+  private int length = 0;
+
+  PcmBuffer(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  public void onFormat(int sampleRate, int channelCount) {
+    this.sampleRate = sampleRate;
+    this.sourceChannelCount = Math.max(1, channelCount);
+    this.channelCount = Math.min(2, sourceChannelCount);
+  }
+
+  @Override
+  public void onSamples(short[] decoded, int count) throws IOException {
+    int frames = count / sourceChannelCount;
+    ensureCapacity(length + frames * channelCount);
+    if (sourceChannelCount == channelCount) {
+      System.arraycopy(decoded, 0, samples, length, frames * channelCount);
+      length += frames * channelCount;
+      return;
+    }
+    for (int frame = 0; frame < frames; frame++) {
+      int offset = frame * sourceChannelCount;
+      samples[length++] = decoded[offset];
+      samples[length++] = decoded[offset + 1];
+    }
+  }
+
+  int getSampleRate() {
+    return sampleRate;
+  }
+
+  int getChannelCount() {
+    return channelCount;
+  }
+
+  // Interleaved samples, only the first getLength() are valid
+  short[] getSamples() {
+    return samples;
+  }
+
+  int getLength() {
+    return length;
+  }
+
+  int getFrameCount() {
+    return channelCount == 0 ? 0 : length / channelCount;
+  }
+
+  long getDurationMs() {
+    return sampleRate == 0 ? 0 : getFrameCount() * 1000L / sampleRate;
+  }
+
+  private void ensureCapacity(int required) throws IOException {
+    if ((long) required * 2 > maxBytes) {
+      throw new IOException("Decoded track is larger than " + maxBytes + " bytes");
+    }
+    if (required > samples.length) {
+      long grown = Math.max(required, (long) samples.length * 2);
+      samples = Arrays.copyOf(samples, (int) Math.min(grown, maxBytes / 2));
+    }
+  }
+}
@@ -0,0 +1,250 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.annotation.TargetApi;
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaDataSource;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+
+// Decodes a whole audio track to interleaved 16-bit PCM, off the playback path
+//
+// Sources are read through ExoPlayer DataSources (see DataSourceAdapter), so streamed, downloaded
+// and encrypted tracks go through exactly the same reading and decryption code as playback.
+// The encoder delay and padding are trimmed when the container says how long they are (see
+// GaplessTrimmer), so the PCM starts and ends where the audio does.
+@TargetApi(Build.VERSION_CODES.M)
+class PcmDecoder {
+  private static final long TIMEOUT_US = 10000;
+  // MediaFormat.KEY_ENCODER_DELAY and KEY_ENCODER_PADDING, only public from API 30 but set by
+  // the platform extractors long before
+  private static final String KEY_ENCODER_DELAY = "encoder-delay";
+  private static final String KEY_ENCODER_PADDING = "encoder-padding";
+
+  interface Sink {
+    void onFormat(int sampleRate, int channelCount);
+    // Interleaved samples, only valid for the duration of the call
+    void onSamples(short[] samples, int count) throws IOException;
+  }
+
+  private PcmDecoder() {}
+
+  static void decode(DataSource dataSource, Uri uri, Sink sink) throws IOException {
+    MediaExtractor extractor = new MediaExtractor();
+    DataSourceAdapter adapter = new DataSourceAdapter(dataSource, uri);
+    try {
+      extractor.setDataSource(adapter);
+      decode(extractor, sink);
+    } finally {
+      extractor.release();
+      adapter.close();
+    }
+  }
+
+  private static void decode(MediaExtractor extractor, Sink sink) throws IOException {
+    MediaFormat inputFormat = null;
+    for (int i = 0; i < extractor.getTrackCount(); i++) {
+      MediaFormat format = extractor.getTrackFormat(i);
+      String mime = format.getString(MediaFormat.KEY_MIME);
+      if (mime != null && mime.startsWith("audio/")) {
+        extractor.selectTrack(i);
+        inputFormat = format;
+        break;
+      }
+    }
+    if (inputFormat == null) {
+      throw new IOException("No audio track found");
+    }
+
+    // Gapless info from the container (LAME header, iTunSMPB). The decoder is told there is
+    // none, some platform decoders trim it themselves and it must not be trimmed twice.
+    int delayFrames = getInteger(inputFormat, KEY_ENCODER_DELAY);
+    int paddingFrames = getInteger(inputFormat, KEY_ENCODER_PADDING);
+    if (delayFrames > 0 || paddingFrames > 0) {
+      Log.d("PcmDecoder", "Trimming encoder delay " + delayFrames + " and padding " + paddingFrames + " frames");
+      inputFormat.setInteger(KEY_ENCODER_DELAY, 0);
+      inputFormat.setInteger(KEY_ENCODER_PADDING, 0);
+      sink = new GaplessTrimmer(sink, delayFrames, paddingFrames);
+    }
+
+    MediaCodec codec = MediaCodec.createDecoderByType(inputFormat.getString(MediaFormat.KEY_MIME));
+    try {
+      codec.configure(inputFormat, null, null, 0);
+      codec.start();
+
+      MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+      short[] samples = new short[0];
+      boolean formatReported = false;
+      boolean floatOutput = false;
+      boolean inputDone = false;
+      boolean outputDone = false;
+
+      while (!outputDone) {
+        if (Thread.interrupted()) {
+          throw new InterruptedIOException("Decoding cancelled");
+        }
+
+        if (!inputDone) {
+          int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+          if (inputIndex >= 0) {
+            ByteBuffer input = codec.getInputBuffer(inputIndex);
+            int size = extractor.readSampleData(input, 0);
+            if (size < 0) {
+              codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+              inputDone = true;
+            } else {
+              codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+              extractor.advance();
+            }
+          }
+        }
+
+        int outputIndex = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+        if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+          MediaFormat outputFormat = codec.getOutputFormat();
+          floatOutput = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                  && outputFormat.containsKey(MediaFormat.KEY_PCM_ENCODING)
+                  && outputFormat.getInteger(MediaFormat.KEY_PCM_ENCODING) == AudioFormat.ENCODING_PCM_FLOAT;
+          sink.onFormat(outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                  outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+          formatReported = true;
+        } else if (outputIndex >= 0) {
+          if (!formatReported) {
+            sink.onFormat(inputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                    inputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+            formatReported = true;
+          }
+
+          ByteBuffer output = codec.getOutputBuffer(outputIndex);
+          output.position(info.offset);
+          output.limit(info.offset + info.size);
+          ByteBuffer pcm = output.slice().order(ByteOrder.nativeOrder());
+
+          int count = floatOutput ? info.size / 4 : info.size / 2;
+          if (samples.length < count) {
+            samples = new short[count];
+          }
+          if (floatOutput) {
+            FloatBuffer floats = pcm.asFloatBuffer();
+            for (int i = 0; i < count; i++) {
+              float sample = Math.max(-1f, Math.min(1f, floats.get(i)));
+              samples[i] = (short) (sample * Short.MAX_VALUE);
+            }
+          } else {
+            pcm.asShortBuffer().get(samples, 0, count);
+          }
+          codec.releaseOutputBuffer(outputIndex, false);
+
+          if (count > 0) {
+            sink.onSamples(samples, count);
+          }
+          if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+            outputDone = true;
+          }
+        }
+      }
+    } catch (IllegalStateException e) {
+      throw new IOException("Decoder error: " + e.getMessage(), e);
+    } finally {
+      try {
+        codec.stop();
+      } catch (IllegalStateException e) {
+        // Never started
+      }
+      codec.release();
+    }
+  }
+
+  private static int getInteger(MediaFormat format, String key) {
+    return format.containsKey(key) ? format.getInteger(key) : 0;
+  }
+
+  // Adapts an ExoPlayer DataSource to MediaDataSource so MediaExtractor can read through it.
+  // Sequential reads reuse the open DataSource, any other position re-opens it there.
+  static class DataSourceAdapter extends MediaDataSource {
+    private final DataSource dataSource;
+    private final Uri uri;
+    private boolean opened = false;
+    private long position = 0;
+    private long size = C.LENGTH_UNSET;
+
+    DataSourceAdapter(DataSource dataSource, Uri uri) {
+      this.dataSource = dataSource;
+      this.uri = uri;
+    }
+
+    @Override
+    public synchronized int readAt(long readPosition, byte[] buffer, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (size != C.LENGTH_UNSET && readPosition >= size) {
+        return -1;
+      }
+
+      if (!opened || readPosition != position) {
+        closeDataSource();
+        long openedLength = dataSource.open(new DataSpec.Builder().setUri(uri).setPosition(readPosition).build());
+        if (size == C.LENGTH_UNSET && openedLength != C.LENGTH_UNSET) {
+          size = readPosition + openedLength;
+        }
+        opened = true;
+        position = readPosition;
+      }
+
+      // StreamingDataSource returns 0 while it is still buffering headers, keep waiting for data
+      int bytesRead;
+      do {
+        bytesRead = dataSource.read(buffer, offset, length);
+      } while (bytesRead == 0);
+
+      if (bytesRead == C.RESULT_END_OF_INPUT) {
+        return -1;
+      }
+      position += bytesRead;
+      return bytesRead;
+    }
+
+    @Override
+    public synchronized long getSize() throws IOException {
+      if (size == C.LENGTH_UNSET && !opened) {
+        // Open once to learn the length, MediaExtractor asks before reading anything
+        long openedLength = dataSource.open(new DataSpec.Builder().setUri(uri).build());
+        opened = true;
+        position = 0;
+        size = openedLength;
+      }
+      return size;
+    }
+
+    @Override
+    public synchronized void close() {
+      closeDataSource();
+    }
+
+    private void closeDataSource() {
+      if (!opened) {
+        return;
+      }
+      opened = false;
+      try {
+        dataSource.close();
+      } catch (IOException e) {
+        Log.w("PcmDecoder", "Error closing data source: " + e.getMessage());
+      }
+    }
+  }
+}
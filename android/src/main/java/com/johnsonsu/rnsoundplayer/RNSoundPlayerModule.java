@@ -3,10 +3,20 @@ package com.johnsonsu.rnsoundplayer;
 import android.content.Context;
 import android.media.AudioManager;
 import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.annotation.Nullable;
 
 import com.facebook.react.bridge.ReactApplicationContext;
@@ -16,6 +26,10 @@ import com.facebook.react.bridge.Callback;
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.LifecycleEventListener;
@@ -24,6 +38,7 @@ import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.DefaultLoadControl;
 import com.google.android.exoplayer2.MediaItem;
 import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.Timeline;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.source.ProgressiveMediaSource;
 import com.google.android.exoplayer2.upstream.DataSource;
@@ -32,6 +47,7 @@ import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
 import com.google.android.exoplayer2.upstream.FileDataSource;
 import com.google.android.exoplayer2.upstream.ContentDataSource;
 import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
 import com.google.android.exoplayer2.upstream.TransferListener;
 import com.google.android.exoplayer2.upstream.HttpDataSource;
 
@@ -55,6 +71,12 @@ import org.bouncycastle.crypto.params.ParametersWithIV;
 
 import com.google.android.exoplayer2.PlaybackException;
 import com.google.android.exoplayer2.audio.AudioAttributes;
+import com.google.android.exoplayer2.audio.AudioCapabilities;
+import com.google.android.exoplayer2.audio.AudioProcessor;
+import com.google.android.exoplayer2.audio.AudioSink;
+import com.google.android.exoplayer2.audio.DefaultAudioSink;
+import com.google.android.exoplayer2.audio.TeeAudioProcessor;
+import com.google.android.exoplayer2.DefaultRenderersFactory;
 import com.google.android.exoplayer2.C;
 
 public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements LifecycleEventListener {
@@ -65,6 +87,13 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
   public final static String EVENT_FINISHED_LOADING_FILE = "FinishedLoadingFile";
   public final static String EVENT_FINISHED_LOADING_URL = "FinishedLoadingURL";
   public final static String EVENT_CHUNK_RECEIVED = "OnChunkReceived";
+  public final static String EVENT_DOWNLOAD_PROGRESS = "OnDownloadProgress";
+  public final static String EVENT_DOWNLOAD_STATE_CHANGED = "OnDownloadStateChanged";
+  public final static String EVENT_LEVEL_METER = "OnLevelMeter";
+  public final static String EVENT_TAP_CHUNK = "OnTapChunk";
+  public final static String EVENT_LOAD_SUSPENDED = "OnLoadSuspended";
+  public final static String EVENT_LOOP = "OnLoop";
+  public final static String EVENT_VARIANT_CHANGED = "OnVariantChanged";
 
   private final ReactApplicationContext reactContext;
   private ExoPlayer exoPlayer;
@@ -73,16 +102,186 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
   private boolean isStreaming = false;
   
   // Custom values for encrypted audio
-  private int encryptedBitrate = 0;
+  // Also written on the player's looper when a variant switch happens
+  private volatile int encryptedBitrate = 0;
   private float encryptedDuration = 0f;
   private boolean useCustomDurationAndBitrate = false;
 
+  // How often the foreground buffer is reported to the load scheduler
+  private static final long FOREGROUND_REPORT_INTERVAL_MS = 250;
+
+  private final LoadScheduler loadScheduler = new LoadScheduler();
+  private final DefaultBandwidthMeter bandwidthMeter;
+  private final BandwidthHistory bandwidthHistory;
+  // Streams release their header as soon as it is complete and start at a minimal buffer
+  private volatile boolean fastStartEnabled = false;
+  private final OfflineDownloadManager downloadManager;
+  private final LevelMeter levelMeter;
+  private final ChunkTap chunkTap;
+  private Handler playerHandler;
+  private final MemoryGovernor memoryGovernor = new MemoryGovernor();
+  private AdaptiveLoadControl loadControl;
+
+  // Buffer ceilings applied under memory pressure, the normal maximum is 8s
+  private static final long BACKGROUND_MAX_BUFFER_MS = 5000;
+  private static final long MODERATE_PRESSURE_MAX_BUFFER_MS = 3000;
+  private static final long CRITICAL_PRESSURE_MAX_BUFFER_MS = 2000;
+
+  // What the player was last given, so an idle player released under memory pressure can be
+  // rebuilt by resume() at the same position
+  @Nullable private MediaSource currentMediaSource;
+  @Nullable private MediaItem currentMediaItem;
+  private StartupStrategy currentStartup = StartupStrategy.DEFAULT;
+  @Nullable private VariantSwitcher currentVariantSwitcher;
+  // The variant heard last and the bandwidth estimate that picked the latest switch
+  @Nullable private VariantSwitcher.Variant playedVariant;
+  private long variantSwitchEstimate = 0;
+  // Set once a track that changed on the server was prepared again, so a second change fails
+  private boolean contentChangeRestarted = false;
+  private boolean playerReleased = false;
+  private long releasedPositionMs = 0;
+  private long releasedDurationMs = C.TIME_UNSET;
+
+  // setNumberOfLoops() value with the iOS meaning: n plays the track n + 1 times, a negative
+  // value loops until stopped. It applies to every track loaded afterwards.
+  private int numberOfLoops = 0;
+  // Loops still to go for the current track (negative when unbounded) and loops completed
+  private int loopsRemaining = 0;
+  private int loopIteration = 0;
+
+  // Seamless loops keep the whole decoded track in memory, this bounds its size
+  private static final long MAX_SEAMLESS_LOOP_BYTES = 4 * 1024 * 1024;
+  private final Handler loopHandler = new Handler(Looper.getMainLooper());
+  // Only touched on loopHandler
+  @Nullable private LoopPlayer loopPlayer;
+  // The last decoded loop, so playing it again skips decoding
+  @Nullable private PcmBuffer loopPcm;
+  @Nullable private String loopPcmKey;
+
+  // Sprites are decoded whole and stay in memory while loaded, this bounds their size
+  private static final long MAX_SPRITE_BYTES = 16 * 1024 * 1024;
+  @Nullable private volatile SpriteMixer spriteMixer;
+
+  // Playback paused for this long stops loading and closes its connections, 0 disables it
+  private static final long DEFAULT_IDLE_SUSPEND_TIMEOUT_MS = 60000;
+  // Retry delay when a connection was busy with a read at suspension time
+  private static final long IDLE_SUSPEND_RETRY_MS = 1000;
+  private final ConnectionSuspender connectionSuspender = new ConnectionSuspender();
+  // Enough for an encrypted playback source and a background reader with one seek in flight
+  private static final int MAX_POOLED_BUFFERS = 12;
+  private final BufferPool bufferPool = new BufferPool(StreamingDataSource.MAX_CHUNK_SIZE, MAX_POOLED_BUFFERS);
+  private final SoundScheduler soundScheduler;
+  private final HeaderCache headerCache;
+  // First URL of the streamed track, the key for its cached header and metadata
+  @Nullable private String currentStreamUrl;
+  private long idleSuspendTimeoutMs = DEFAULT_IDLE_SUSPEND_TIMEOUT_MS;
+  private boolean loadSuspended = false;
+
+  // Seek bursts closer together than this are coalesced into one trailing seek
+  private static final long SEEK_COALESCE_MS = 100;
+  private long lastSeekTimeMs = 0;
+  private volatile long pendingSeekMs = C.TIME_UNSET;
+
+  private int mirrorRaceWidth = OriginSelector.DEFAULT_RACE_WIDTH;
+  private long mirrorHedgeDelayMs = OriginSelector.DEFAULT_HEDGE_DELAY_MS;
+  // Decodes for seamless loops and sprites, which the user is waiting to hear
+  private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+  // Waveforms get their own threads, so a screen full of them never delays a loop or a sprite.
+  // Two at a time still overlaps the network wait of one with the decoding of another.
+  private static final int WAVEFORM_THREADS = 2;
+  private final ExecutorService waveformExecutor = Executors.newFixedThreadPool(WAVEFORM_THREADS);
+
   public RNSoundPlayerModule(ReactApplicationContext reactContext) {
     super(reactContext);
     this.reactContext = reactContext;
     this.volume = 1.0f;
     this.audioManager = (AudioManager) this.reactContext.getSystemService(Context.AUDIO_SERVICE);
+    this.downloadManager = new OfflineDownloadManager(
+            new File(reactContext.getFilesDir(), "rnsoundplayer-downloads"),
+            loadScheduler,
+            new OfflineDownloadManager.Listener() {
+              @Override
+              public void onProgress(OfflineDownloadManager.Download download) {
+                sendEvent(getReactApplicationContext(), EVENT_DOWNLOAD_PROGRESS, createDownloadMap(download));
+              }
+
+              @Override
+              public void onStateChanged(OfflineDownloadManager.Download download, @Nullable String error) {
+                WritableMap params = createDownloadMap(download);
+                if (error != null) {
+                  params.putString("error", error);
+                }
+                sendEvent(getReactApplicationContext(), EVENT_DOWNLOAD_STATE_CHANGED, params);
+              }
+            });
+    this.levelMeter = new LevelMeter(new LevelMeter.Listener() {
+      @Override
+      public void onLevels(float[] rms, float[] peak, int intervalMs) {
+        WritableMap params = Arguments.createMap();
+        WritableArray rmsArray = Arguments.createArray();
+        WritableArray peakArray = Arguments.createArray();
+        for (int i = 0; i < rms.length; i++) {
+          rmsArray.pushDouble(rms[i]);
+          peakArray.pushDouble(peak[i]);
+        }
+        params.putArray("rms", rmsArray);
+        params.putArray("peak", peakArray);
+        params.putInt("intervalMs", intervalMs);
+        sendEvent(getReactApplicationContext(), EVENT_LEVEL_METER, params);
+      }
+    });
+    this.chunkTap = new ChunkTap(
+            new File(reactContext.getCacheDir(), "rnsoundplayer-tap.bin"),
+            new ChunkTap.Listener() {
+              @Override
+              public void onChunk(long sequence, int offset, int length, long streamPosition, long droppedChunks) {
+                WritableMap params = Arguments.createMap();
+                params.putDouble("sequence", sequence);
+                params.putString("path", chunkTap.getPath());
+                params.putInt("offset", offset);
+                params.putInt("length", length);
+                params.putDouble("position", streamPosition);
+                params.putDouble("dropped", droppedChunks);
+                sendEvent(getReactApplicationContext(), EVENT_TAP_CHUNK, params);
+              }
+            });
+    this.soundScheduler = new SoundScheduler(reactContext);
+    this.bandwidthHistory = new BandwidthHistory(reactContext, new File(reactContext.getFilesDir(), "rnsoundplayer-bandwidth.json"));
+    // Networks measured in earlier sessions start from what was seen there instead of the
+    // meter's country defaults
+    DefaultBandwidthMeter.Builder bandwidthMeterBuilder = new DefaultBandwidthMeter.Builder(reactContext);
+    for (Map.Entry<Integer, Long> estimate : bandwidthHistory.getNetworkEstimates().entrySet()) {
+      bandwidthMeterBuilder.setInitialBitrateEstimate(estimate.getKey(), estimate.getValue());
+    }
+    this.bandwidthMeter = bandwidthMeterBuilder.build();
+    this.headerCache = new HeaderCache(new File(reactContext.getCacheDir(), "rnsoundplayer-headers"));
     reactContext.addLifecycleEventListener(this);
+    this.memoryGovernor.register(new MemoryGovernor.Trimmable() {
+      @Override
+      public void onTrim(final int pressure) {
+        if (playerHandler == null) {
+          return;
+        }
+        // The player may only be touched from its own looper
+        playerHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            trimPlayer(pressure);
+          }
+        });
+      }
+    });
+    this.memoryGovernor.register(bufferPool);
+    this.memoryGovernor.register(new MemoryGovernor.Trimmable() {
+      @Override
+      public void onTrim(int pressure) {
+        if (pressure >= MemoryGovernor.PRESSURE_MODERATE) {
+          // A playing loop has its own copy in the audio track
+          dropLoopPcm();
+        }
+      }
+    });
+    reactContext.getApplicationContext().registerComponentCallbacks(memoryGovernor);
   }
 
   @Override
@@ -98,19 +297,39 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
 
   @Override
   public void onHostResume() {
+    memoryGovernor.onHostResume();
   }
 
   @Override
   public void onHostPause() {
+    memoryGovernor.onHostPause();
   }
 
   @Override
   public void onHostDestroy() {
     this.stop();
-    if (exoPlayer != null) {
-      exoPlayer.release();
-      exoPlayer = null;
-    }
+    releasePlayer();
+    playerReleased = false;
+    soundScheduler.stopAll();
+    stopSeamlessLoop();
+    dropLoopPcm();
+    unloadSprite();
+    chunkTap.disable();
+  }
+
+  // The React context is going away (e.g. a reload): everything the module registered or
+  // started has to go with it, or the module and its threads outlive the context
+  @Override
+  public void invalidate() {
+    ReactApplicationContext reactContext = getReactApplicationContext();
+    reactContext.removeLifecycleEventListener(this);
+    reactContext.getApplicationContext().unregisterComponentCallbacks(memoryGovernor);
+    onHostDestroy();
+    soundScheduler.release();
+    downloadManager.shutdown();
+    backgroundExecutor.shutdownNow();
+    waveformExecutor.shutdownNow();
+    super.invalidate();
   }
 
   @ReactMethod
@@ -119,6 +338,270 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
     this.resume();
   }
 
+  // Starts the sound `delay` seconds from now, timed natively rather than by a JS timer
+  @ReactMethod
+  public void playSoundFileWithDelay(String name, String type, double delay) throws IOException {
+    mountSoundFile(name, type);
+    if (this.exoPlayer == null) {
+      return;
+    }
+    final ExoPlayer player = this.exoPlayer;
+    long startTimeNs = SoundScheduler.now() + (long) (delay * 1000000000L);
+    // Timed on the scheduler thread, its spin would hold up every other call on the player's
+    // thread (the native modules thread). The start then jumps the player thread's queue.
+    soundScheduler.runAt(startTimeNs, new Runnable() {
+      @Override
+      public void run() {
+        playerHandler.postAtFrontOfQueue(new Runnable() {
+          @Override
+          public void run() {
+            // Only start if nothing else was loaded into the player in the meantime
+            if (exoPlayer == player) {
+              try {
+                resume();
+              } catch (IOException e) {
+                sendErrorEvent(e);
+              }
+            }
+          }
+        });
+      }
+    });
+  }
+
+  // Milliseconds on the clock used by scheduleSounds(), monotonic and shared by all sounds
+  @ReactMethod
+  public void getAudioClockTime(Promise promise) {
+    promise.resolve(SystemClock.elapsedRealtimeNanos() / 1000000.0);
+  }
+
+  // Starts loaded sounds together at `startTime` (see getAudioClockTime()) on their own players
+  // and resolves with the time the audio of each one started, measured from its audio position
+  @ReactMethod
+  public void scheduleSounds(ReadableArray sounds, double startTime, final Promise promise) {
+    if (sounds.size() == 0) {
+      promise.reject("E_SCHEDULE", "No sounds to schedule");
+      return;
+    }
+    final List<String> names = new ArrayList<>();
+    List<Uri> uris = new ArrayList<>();
+    for (int i = 0; i < sounds.size(); i++) {
+      ReadableMap sound = sounds.getMap(i);
+      names.add(sound.getString("name"));
+      uris.add(getSoundUri(sound.getString("name"), sound.hasKey("type") ? sound.getString("type") : ""));
+    }
+
+    final long startTimeNs = (long) (startTime * 1000000);
+    soundScheduler.schedule(uris, startTimeNs, volume, new SoundScheduler.Callback() {
+      @Override
+      public void onStarted(long[] startTimesNs) {
+        WritableArray results = Arguments.createArray();
+        for (int i = 0; i < startTimesNs.length; i++) {
+          WritableMap result = Arguments.createMap();
+          result.putString("name", names.get(i));
+          result.putDouble("startTime", startTimesNs[i] / 1000000.0);
+          result.putDouble("lateMs", (startTimesNs[i] - startTimeNs) / 1000000.0);
+          results.pushMap(result);
+        }
+        promise.resolve(results);
+      }
+
+      @Override
+      public void onError(String message) {
+        promise.reject("E_SCHEDULE", message);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void stopScheduledSounds() {
+    soundScheduler.stopAll();
+  }
+
+  // Decodes `source` once and loops it from memory, `loops` with the setNumberOfLoops meaning
+  @ReactMethod
+  public void playSeamlessLoop(final ReadableMap source, final int loops, final Promise promise) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+      promise.reject("E_UNSUPPORTED", "playSeamlessLoop requires Android 6.0 or newer");
+      return;
+    }
+    final String key = getSourceUri(source) + (source.hasKey("dekHex") ? "#" + source.getString("dekHex") : "");
+    final float loopVolume = this.volume;
+
+    // Decoding is too slow for the native modules thread
+    backgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        final PcmBuffer pcm;
+        try {
+          PcmBuffer cached = getLoopPcm(key);
+          if (cached != null) {
+            pcm = cached;
+          } else {
+            pcm = new PcmBuffer(MAX_SEAMLESS_LOOP_BYTES);
+            PcmDecoder.decode(createSourceDataSource(source), getSourceUri(source), pcm);
+            setLoopPcm(key, pcm);
+          }
+        } catch (Exception e) {
+          Log.e("RNSoundPlayer", "playSeamlessLoop failed: " + e.getMessage());
+          promise.reject("E_LOOP", e.getMessage(), e);
+          return;
+        }
+
+        loopHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            startLoopPlayer(pcm, loops, loopVolume, promise);
+          }
+        });
+      }
+    });
+  }
+
+  @ReactMethod
+  public void stopSeamlessLoop() {
+    loopHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (loopPlayer != null) {
+          loopPlayer.stop();
+          loopPlayer = null;
+        }
+      }
+    });
+  }
+
+  private void startLoopPlayer(PcmBuffer pcm, int loops, float loopVolume, Promise promise) {
+    if (loopPlayer != null) {
+      loopPlayer.stop();
+      loopPlayer = null;
+    }
+    try {
+      loopPlayer = new LoopPlayer(pcm, loops, loopVolume, loopHandler, new LoopPlayer.Listener() {
+        @Override
+        public void onLoop(int iteration, int remaining) {
+          WritableMap params = Arguments.createMap();
+          params.putInt("iteration", iteration);
+          params.putInt("remaining", remaining);
+          params.putBoolean("seamless", true);
+          sendEvent(getReactApplicationContext(), EVENT_LOOP, params);
+        }
+
+        @Override
+        public void onFinished() {
+          loopPlayer = null;
+          WritableMap params = Arguments.createMap();
+          params.putBoolean("success", true);
+          params.putBoolean("seamless", true);
+          sendEvent(getReactApplicationContext(), EVENT_FINISHED_PLAYING, params);
+        }
+      });
+      loopPlayer.play();
+    } catch (IOException e) {
+      promise.reject("E_LOOP", e.getMessage(), e);
+      return;
+    }
+    WritableMap result = Arguments.createMap();
+    result.putDouble("duration", loopPlayer.getDurationMs() / 1000.0);
+    promise.resolve(result);
+  }
+
+  @Nullable
+  private synchronized PcmBuffer getLoopPcm(String key) {
+    return key.equals(loopPcmKey) ? loopPcm : null;
+  }
+
+  private synchronized void setLoopPcm(String key, PcmBuffer pcm) {
+    loopPcmKey = key;
+    loopPcm = pcm;
+  }
+
+  private synchronized void dropLoopPcm() {
+    loopPcmKey = null;
+    loopPcm = null;
+  }
+
+  // Decodes `source` once and makes its regions, {name: {start, duration}} in seconds, playable
+  // by name with playSprite(). Replaces the sprite loaded before.
+  @ReactMethod
+  public void loadSprite(final ReadableMap source, ReadableMap regions, final Promise promise) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+      promise.reject("E_UNSUPPORTED", "loadSprite requires Android 6.0 or newer");
+      return;
+    }
+    // Read the manifest here, bridge maps shouldn't travel to other threads
+    final List<String> names = new ArrayList<>();
+    final List<double[]> bounds = new ArrayList<>();
+    ReadableMapKeySetIterator iterator = regions.keySetIterator();
+    while (iterator.hasNextKey()) {
+      String name = iterator.nextKey();
+      ReadableMap region = regions.getMap(name);
+      if (region == null || !region.hasKey("start") || !region.hasKey("duration")) {
+        promise.reject("E_INVALID_ARGUMENT", "Sprite region " + name + " needs a start and a duration");
+        return;
+      }
+      names.add(name);
+      bounds.add(new double[] { region.getDouble("start") * 1000, region.getDouble("duration") * 1000 });
+    }
+
+    backgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          PcmBuffer pcm = new PcmBuffer(MAX_SPRITE_BYTES);
+          PcmDecoder.decode(createSourceDataSource(source), getSourceUri(source), pcm);
+          SpriteMixer mixer = new SpriteMixer(pcm);
+          for (int i = 0; i < names.size(); i++) {
+            mixer.addRegion(names.get(i), bounds.get(i)[0], bounds.get(i)[1]);
+          }
+
+          SpriteMixer previous = spriteMixer;
+          spriteMixer = mixer;
+          if (previous != null) {
+            previous.release();
+          }
+
+          WritableMap result = Arguments.createMap();
+          result.putDouble("duration", mixer.getDurationMs() / 1000.0);
+          promise.resolve(result);
+        } catch (Exception e) {
+          Log.e("RNSoundPlayer", "loadSprite failed: " + e.getMessage());
+          promise.reject("E_SPRITE", e.getMessage(), e);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void playSprite(String name) {
+    SpriteMixer mixer = spriteMixer;
+    try {
+      if (mixer == null) {
+        throw new IOException("No sprite is loaded");
+      }
+      mixer.play(name, this.volume);
+    } catch (IOException e) {
+      sendErrorEvent(e);
+    }
+  }
+
+  @ReactMethod
+  public void stopSprites() {
+    SpriteMixer mixer = spriteMixer;
+    if (mixer != null) {
+      mixer.stopAll();
+    }
+  }
+
+  @ReactMethod
+  public void unloadSprite() {
+    SpriteMixer mixer = spriteMixer;
+    spriteMixer = null;
+    if (mixer != null) {
+      mixer.release();
+    }
+  }
+
   @ReactMethod
   public void loadSoundFile(String name, String type) throws IOException {
     mountSoundFile(name, type);
@@ -137,24 +620,114 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
 
   @ReactMethod
   public void playUrlWithStreaming(String url) throws IOException {
-    prepareUrlWithStreaming(url);
+    prepareUrlWithStreaming(Collections.singletonList(url));
     this.resume();
   }
 
   @ReactMethod
   public void loadUrlWithStreaming(String url) throws IOException {
-    prepareUrlWithStreaming(url);
+    prepareUrlWithStreaming(Collections.singletonList(url));
   }
 
   @ReactMethod
   public void playUrlWithStreamingEncrypted(String url, String dekHex, String counterBaseHex, int bitrate, float duration) throws IOException {
-    prepareUrlWithStreamingEncrypted(url, dekHex, counterBaseHex, bitrate, duration);
+    prepareUrlWithStreamingEncrypted(Collections.singletonList(url), dekHex, counterBaseHex, bitrate, duration);
     this.resume();
   }
 
   @ReactMethod
   public void loadUrlWithStreamingEncrypted(String url, String dekHex, String counterBaseHex, int bitrate, float duration) throws IOException {
-    prepareUrlWithStreamingEncrypted(url, dekHex, counterBaseHex, bitrate, duration);
+    prepareUrlWithStreamingEncrypted(Collections.singletonList(url), dekHex, counterBaseHex, bitrate, duration);
+  }
+
+  // Mirror variants: `urls` are ordered mirrors of the same content, the first one identifies the track
+  @ReactMethod
+  public void playUrlWithStreamingMirrors(ReadableArray urls) throws IOException {
+    prepareUrlWithStreaming(toUrlList(urls));
+    this.resume();
+  }
+
+  @ReactMethod
+  public void loadUrlWithStreamingMirrors(ReadableArray urls) throws IOException {
+    prepareUrlWithStreaming(toUrlList(urls));
+  }
+
+  @ReactMethod
+  public void playUrlWithStreamingEncryptedMirrors(ReadableArray urls, String dekHex, String counterBaseHex, int bitrate, float duration) throws IOException {
+    prepareUrlWithStreamingEncrypted(toUrlList(urls), dekHex, counterBaseHex, bitrate, duration);
+    this.resume();
+  }
+
+  @ReactMethod
+  public void loadUrlWithStreamingEncryptedMirrors(ReadableArray urls, String dekHex, String counterBaseHex, int bitrate, float duration) throws IOException {
+    prepareUrlWithStreamingEncrypted(toUrlList(urls), dekHex, counterBaseHex, bitrate, duration);
+  }
+
+  // Bitrate ladder: {url, bitrate, dekHex?, counterBaseHex?} variants of the same track, the
+  // variant is checked against the measured bandwidth every VariantSwitcher.CHECK_INTERVAL_MS
+  @ReactMethod
+  public void playUrlWithStreamingVariants(ReadableArray variants, float duration) throws IOException {
+    prepareUrlWithStreamingVariants(variants, duration);
+    this.resume();
+  }
+
+  @ReactMethod
+  public void loadUrlWithStreamingVariants(ReadableArray variants, float duration) throws IOException {
+    prepareUrlWithStreamingVariants(variants, duration);
+  }
+
+  // Seconds a paused player waits before it stops loading and closes its connections, 0 disables it
+  @ReactMethod
+  public void setIdleSuspendTimeout(double seconds) {
+    this.idleSuspendTimeoutMs = Math.max(0, (long) (seconds * 1000));
+    if (playerHandler != null) {
+      playerHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          scheduleIdleSuspend();
+        }
+      });
+    }
+  }
+
+  @ReactMethod
+  public void setHeaderCacheOptions(double maxBytes, double ttlSeconds) {
+    headerCache.setOptions((long) maxBytes, (long) (ttlSeconds * 1000));
+  }
+
+  @ReactMethod
+  public void clearHeaderCache() {
+    headerCache.clear();
+  }
+
+  // Forgets measured throughput, so the next streams start with the player's defaults
+  @ReactMethod
+  public void clearBandwidthHistory() {
+    bandwidthHistory.clear();
+  }
+
+  // Applies to streams prepared from now on
+  @ReactMethod
+  public void setFastStartEnabled(boolean enabled) {
+    this.fastStartEnabled = enabled;
+  }
+
+  // How many mirrors race for the first byte, and how long each waits before the next one joins
+  @ReactMethod
+  public void setMirrorOptions(int raceWidth, double hedgeDelayMs) {
+    this.mirrorRaceWidth = raceWidth > 0 ? raceWidth : OriginSelector.DEFAULT_RACE_WIDTH;
+    this.mirrorHedgeDelayMs = hedgeDelayMs >= 0 ? (long) hedgeDelayMs : OriginSelector.DEFAULT_HEDGE_DELAY_MS;
+  }
+
+  @ReactMethod
+  public void playFileEncrypted(String path, String dekHex, String counterBaseHex) throws IOException {
+    prepareFileEncrypted(path, dekHex, counterBaseHex);
+    this.resume();
+  }
+
+  @ReactMethod
+  public void loadFileEncrypted(String path, String dekHex, String counterBaseHex) throws IOException {
+    prepareFileEncrypted(path, dekHex, counterBaseHex);
   }
 
   @ReactMethod
@@ -166,6 +739,7 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
 
   @ReactMethod
   public void resume() throws IOException, IllegalStateException {
+    restoreReleasedPlayer();
     if (this.exoPlayer != null) {
       this.setVolume(this.volume);
       this.exoPlayer.play();
@@ -177,10 +751,17 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
     if (this.exoPlayer != null) {
       this.exoPlayer.stop();
     }
+    // A track released under memory pressure must not come back with the next resume()
+    this.playerReleased = false;
   }
 
   @ReactMethod
   public void seek(float seconds) throws IllegalStateException {
+    if (this.playerReleased) {
+      // Applied when resume() rebuilds the player
+      this.releasedPositionMs = (long) (seconds * 1000);
+      return;
+    }
     if (this.exoPlayer != null) {
       if (useCustomDurationAndBitrate && encryptedBitrate > 0) {
         // For encrypted audio with custom bitrate, calculate byte offset for seeking
@@ -190,16 +771,70 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
         // Use ExoPlayer's seek but with calculated position
         // Note: ExoPlayer will handle the actual byte-to-time conversion internally
         long positionMs = (long) (seconds * 1000);
-        this.exoPlayer.seekTo(positionMs);
+        seekPlayerTo(positionMs);
         
         Log.d("RNSoundPlayer", String.format("Seeking encrypted audio: %.2fs -> %d bytes (bitrate: %d bps)", 
                 seconds, byteOffset, encryptedBitrate));
       } else {
         // Standard seeking for non-encrypted audio
         long positionMs = (long) (seconds * 1000);
-        this.exoPlayer.seekTo(positionMs);
+        seekPlayerTo(positionMs);
+      }
+    }
+  }
+
+  // Coalesces seek bursts (scrubbing): a seek after a quiet period is applied at once, seeks
+  // that follow within SEEK_COALESCE_MS only move the target of one trailing seek, so a burst
+  // costs ExoPlayer two data source re-opens instead of one per call
+  private void seekPlayerTo(long positionMs) {
+    long now = SystemClock.uptimeMillis();
+    if (pendingSeekMs == C.TIME_UNSET && now - lastSeekTimeMs >= SEEK_COALESCE_MS) {
+      lastSeekTimeMs = now;
+      seekTrackTo(positionMs);
+      return;
+    }
+    if (pendingSeekMs == C.TIME_UNSET) {
+      playerHandler.postAtTime(pendingSeekApplier, lastSeekTimeMs + SEEK_COALESCE_MS);
+    }
+    pendingSeekMs = positionMs;
+  }
+
+  private final Runnable pendingSeekApplier = new Runnable() {
+    @Override
+    public void run() {
+      if (exoPlayer != null && pendingSeekMs != C.TIME_UNSET) {
+        lastSeekTimeMs = SystemClock.uptimeMillis();
+        seekTrackTo(pendingSeekMs);
       }
+      pendingSeekMs = C.TIME_UNSET;
+    }
+  };
+
+  // Position and duration of the track, which is one window per segment when it is streamed
+  // with variants (see VariantSwitcher)
+  private long getTrackPositionMs() {
+    long positionMs = exoPlayer.getCurrentPosition();
+    if (currentVariantSwitcher != null) {
+      positionMs = currentVariantSwitcher.toTrackPositionMs(exoPlayer.getCurrentMediaItemIndex(), positionMs);
+    }
+    return positionMs;
+  }
+
+  private long getTrackDurationMs() {
+    if (currentVariantSwitcher != null && currentVariantSwitcher.getSegmentCount() > 1) {
+      return (long) (encryptedDuration * 1000);
+    }
+    return exoPlayer.getDuration();
+  }
+
+  private void seekTrackTo(long positionMs) {
+    VariantSwitcher switcher = currentVariantSwitcher;
+    if (switcher == null) {
+      exoPlayer.seekTo(positionMs);
+      return;
     }
+    int segment = switcher.segmentAt(positionMs);
+    exoPlayer.seekTo(segment, positionMs - switcher.getSegmentStartMs(segment));
   }
 
   @ReactMethod
@@ -212,23 +847,69 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
 
   @ReactMethod
   public void setNumberOfLoops(int noOfLooping){
+    this.numberOfLoops = noOfLooping;
+    resetLoops();
+  }
+
+  // Restarts the loop count for the current track
+  private void resetLoops() {
+    this.loopsRemaining = numberOfLoops;
+    this.loopIteration = 0;
     if (this.exoPlayer != null) {
-      if (noOfLooping == 0) {
-        this.exoPlayer.setRepeatMode(Player.REPEAT_MODE_OFF);
-      } else {
-        this.exoPlayer.setRepeatMode(Player.REPEAT_MODE_ALL);
+      this.exoPlayer.setRepeatMode(loopRepeatMode());
+    }
+  }
+
+  // The track repeats while loops remain, the last play runs with repeat off so it ends normally
+  private int loopRepeatMode() {
+    return loopsRemaining == 0 ? Player.REPEAT_MODE_OFF : Player.REPEAT_MODE_ONE;
+  }
+
+  // Whether an automatic transition went back to the start of the track. A track streamed with
+  // variants is one window per segment (see VariantSwitcher), and moving on to the next segment
+  // is an automatic transition as well.
+  private boolean isLoopWrap(Player.PositionInfo oldPosition, Player.PositionInfo newPosition) {
+    if (oldPosition.mediaItemIndex == newPosition.mediaItemIndex) {
+      return newPosition.positionMs < oldPosition.positionMs;
+    }
+    Timeline timeline = exoPlayer.getCurrentTimeline();
+    return newPosition.mediaItemIndex == 0 && oldPosition.mediaItemIndex == timeline.getWindowCount() - 1;
+  }
+
+  private void onLoopCompleted() {
+    loopIteration++;
+    if (loopsRemaining > 0) {
+      loopsRemaining--;
+      if (loopsRemaining == 0) {
+        exoPlayer.setRepeatMode(Player.REPEAT_MODE_OFF);
       }
     }
+    WritableMap params = Arguments.createMap();
+    params.putInt("iteration", loopIteration);
+    params.putInt("remaining", loopsRemaining);
+    sendEvent(getReactApplicationContext(), EVENT_LOOP, params);
   }
 
   @ReactMethod
   public void getInfo(Promise promise) {
-    if (this.exoPlayer == null) {
+    if (this.exoPlayer == null && !this.playerReleased) {
       promise.resolve(null);
       return;
     }
     WritableMap map = Arguments.createMap();
-    map.putDouble("currentTime", this.exoPlayer.getCurrentPosition() / 1000.0);
+    long positionMs = this.exoPlayer != null ? getTrackPositionMs() : this.releasedPositionMs;
+    if (this.exoPlayer != null && pendingSeekMs != C.TIME_UNSET) {
+      positionMs = pendingSeekMs;
+    }
+    long durationMs = this.exoPlayer != null ? getTrackDurationMs() : this.releasedDurationMs;
+    if (durationMs == C.TIME_UNSET && currentStreamUrl != null) {
+      // Known from an earlier session before ExoPlayer has worked it out again
+      HeaderCache.Entry entry = headerCache.get(currentStreamUrl);
+      if (entry != null) {
+        durationMs = entry.durationMs;
+      }
+    }
+    map.putDouble("currentTime", positionMs / 1000.0);
     
     // Use custom duration for encrypted audio if available, otherwise use ExoPlayer's duration
     if (useCustomDurationAndBitrate && encryptedDuration > 0) {
@@ -236,7 +917,7 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
       map.putInt("bitrate", encryptedBitrate);
       map.putBoolean("customDuration", true);
     } else {
-      map.putDouble("duration", this.exoPlayer.getDuration() / 1000.0);
+      map.putDouble("duration", durationMs / 1000.0);
       map.putBoolean("customDuration", false);
     }
     
@@ -244,74 +925,200 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
   }
 
   @ReactMethod
-  public void addListener(String eventName) {
-    // Set up any upstream listeners or background tasks as necessary
+  public void downloadUrl(String url, Promise promise) {
+    OfflineDownloadManager.Download download = downloadManager.start(url);
+    promise.resolve(createDownloadMap(download));
   }
 
   @ReactMethod
-  public void removeListeners(Integer count) {
-    // Remove upstream listeners, stop unnecessary background tasks
+  public void pauseDownload(String url) {
+    downloadManager.pause(url);
   }
 
-  private void sendEvent(ReactApplicationContext reactContext,
-                         String eventName,
-                         @Nullable WritableMap params) {
-    reactContext
-            .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-            .emit(eventName, params);
+  @ReactMethod
+  public void resumeDownload(String url) {
+    downloadManager.resume(url);
   }
 
-  private void mountSoundFile(String name, String type) throws IOException {
-    try {
-      // Reset custom duration and bitrate for non-encrypted audio
-      this.useCustomDurationAndBitrate = false;
-      this.encryptedBitrate = 0;
-      this.encryptedDuration = 0f;
-      
-      Uri uri;
-      int soundResID = getReactApplicationContext().getResources().getIdentifier(name, "raw", getReactApplicationContext().getPackageName());
-
-      if (soundResID > 0) {
-        uri = Uri.parse("android.resource://" + getReactApplicationContext().getPackageName() + "/raw/" + name);
-      } else {
-        uri = this.getUriFromFile(name, type);
-      }
+  @ReactMethod
+  public void removeDownload(String url, Promise promise) {
+    promise.resolve(downloadManager.remove(url));
+  }
 
-      initializeExoPlayer();
-      MediaItem mediaItem = MediaItem.fromUri(uri);
-      this.exoPlayer.setMediaItem(mediaItem);
-      this.exoPlayer.prepare();
-      
-      sendMountFileSuccessEvents(name, type);
-    } catch (Exception e) {
-      sendErrorEvent(new IOException(e.getMessage()));
+  @ReactMethod
+  public void getDownloads(Promise promise) {
+    WritableArray array = Arguments.createArray();
+    for (OfflineDownloadManager.Download download : downloadManager.getDownloads()) {
+      array.pushMap(createDownloadMap(download));
     }
+    promise.resolve(array);
   }
 
-  private Uri getUriFromFile(String name, String type) {
-    String folder = getReactApplicationContext().getFilesDir().getAbsolutePath();
-    String file = (!type.isEmpty()) ? name + "." + type : name;
-
-    File ref = new File(folder + "/" + file);
+  @ReactMethod
+  public void setDownloadOptions(int maxConcurrentDownloads, double maxStorageBytes) {
+    downloadManager.setOptions(maxConcurrentDownloads, (long) maxStorageBytes);
+  }
 
-    if (ref.exists()) {
-      ref.setReadable(true, false);
-    }
+  @ReactMethod
+  public void setNetworkPriorityOptions(double lowWatermarkMs, double highWatermarkMs, double backgroundBytesPerSecond) {
+    loadScheduler.setOptions((long) lowWatermarkMs, (long) highWatermarkMs, (long) backgroundBytesPerSecond);
+  }
 
-    return Uri.parse("file://" + folder + "/" + file);
+  @ReactMethod
+  public void getBufferPoolStats(Promise promise) {
+    BufferPool.Stats stats = bufferPool.getStats();
+    WritableMap map = Arguments.createMap();
+    map.putDouble("hits", stats.hits);
+    map.putDouble("misses", stats.misses);
+    map.putDouble("dropped", stats.dropped);
+    map.putInt("pooled", stats.pooled);
+    map.putDouble("pooledBytes", stats.pooledBytes);
+    promise.resolve(map);
   }
 
-  private void prepareUrl(final String url) throws IOException {
-    try {
+  @ReactMethod
+  public void setChunkTapEnabled(boolean enabled, int capacityBytes, int batchBytes, Promise promise) {
+    if (!enabled) {
+      chunkTap.disable();
+      promise.resolve(null);
+      return;
+    }
+    try {
+      chunkTap.enable(capacityBytes, batchBytes);
+      promise.resolve(chunkTap.getPath());
+    } catch (IOException e) {
+      promise.reject("E_TAP", e.getMessage(), e);
+    }
+  }
+
+  @ReactMethod
+  public void releaseTapChunk(double sequence) {
+    chunkTap.release((long) sequence);
+  }
+
+  @ReactMethod
+  public void setMeteringEnabled(boolean enabled, int intervalMs, int batchSize) {
+    levelMeter.configure(enabled, intervalMs, batchSize);
+  }
+
+  @ReactMethod
+  public void computeWaveform(final ReadableMap source, final int buckets, final Promise promise) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+      promise.reject("E_UNSUPPORTED", "computeWaveform requires Android 6.0 or newer");
+      return;
+    }
+    if (buckets <= 0) {
+      promise.reject("E_INVALID_ARGUMENT", "buckets must be a positive number");
+      return;
+    }
+
+    // Decoding a whole track takes a while, keep it off the native modules thread
+    waveformExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          WaveformBuilder waveform = new WaveformBuilder();
+          PcmDecoder.decode(createSourceDataSource(source), getSourceUri(source), waveform);
+
+          WritableArray peaks = Arguments.createArray();
+          for (float peak : waveform.getPeaks(buckets)) {
+            peaks.pushDouble(peak);
+          }
+          promise.resolve(peaks);
+        } catch (Exception e) {
+          Log.e("RNSoundPlayer", "computeWaveform failed: " + e.getMessage());
+          promise.reject("E_WAVEFORM", e.getMessage(), e);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void addListener(String eventName) {
+    // Set up any upstream listeners or background tasks as necessary
+  }
+
+  @ReactMethod
+  public void removeListeners(Integer count) {
+    // Remove upstream listeners, stop unnecessary background tasks
+  }
+
+  private void sendEvent(ReactApplicationContext reactContext,
+                         String eventName,
+                         @Nullable WritableMap params) {
+    reactContext
+            .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+            .emit(eventName, params);
+  }
+
+  private WritableMap createDownloadMap(OfflineDownloadManager.Download download) {
+    WritableMap map = Arguments.createMap();
+    map.putString("url", download.url);
+    map.putString("state", download.state);
+    map.putDouble("downloadedBytes", download.downloadedBytes);
+    map.putDouble("totalBytes", download.totalBytes);
+    if (download.totalBytes > 0) {
+      map.putDouble("progress", (double) download.downloadedBytes / download.totalBytes);
+    }
+    return map;
+  }
+
+  private void mountSoundFile(String name, String type) throws IOException {
+    try {
       // Reset custom duration and bitrate for non-encrypted audio
       this.useCustomDurationAndBitrate = false;
       this.encryptedBitrate = 0;
       this.encryptedDuration = 0f;
+      this.currentStreamUrl = null;
+      
+      Uri uri = getSoundUri(name, type);
+
+      initializeExoPlayer();
+      MediaItem mediaItem = MediaItem.fromUri(uri);
+      setPlayerMedia(null, mediaItem);
+      this.exoPlayer.prepare();
+      
+      sendMountFileSuccessEvents(name, type);
+    } catch (Exception e) {
+      sendErrorEvent(new IOException(e.getMessage()));
+    }
+  }
+
+  // Bundled raw resource if there is one with that name, otherwise a file in the files directory
+  private Uri getSoundUri(String name, String type) {
+    int soundResID = getReactApplicationContext().getResources().getIdentifier(name, "raw", getReactApplicationContext().getPackageName());
+
+    if (soundResID > 0) {
+      return Uri.parse("android.resource://" + getReactApplicationContext().getPackageName() + "/raw/" + name);
+    }
+    return this.getUriFromFile(name, type);
+  }
+
+  private Uri getUriFromFile(String name, String type) {
+    String folder = getReactApplicationContext().getFilesDir().getAbsolutePath();
+    String file = (!type.isEmpty()) ? name + "." + type : name;
+
+    File ref = new File(folder + "/" + file);
+
+    if (ref.exists()) {
+      ref.setReadable(true, false);
+    }
+
+    return Uri.parse("file://" + folder + "/" + file);
+  }
+
+  private void prepareUrl(final String url) throws IOException {
+    try {
+      // Reset custom duration and bitrate for non-encrypted audio
+      this.useCustomDurationAndBitrate = false;
+      this.encryptedBitrate = 0;
+      this.encryptedDuration = 0f;
+      this.currentStreamUrl = null;
       
       initializeExoPlayer();
       
       MediaItem mediaItem = MediaItem.fromUri(url);
-      this.exoPlayer.setMediaItem(mediaItem);
+      setPlayerMedia(null, mediaItem);
       this.exoPlayer.prepare();
       
       WritableMap params = Arguments.createMap();
@@ -329,23 +1136,33 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
     }
   }
 
-  private void prepareUrlWithStreaming(final String url) throws IOException {
+  private void prepareUrlWithStreaming(final List<String> urls) throws IOException {
     try {
+      if (urls.isEmpty()) {
+        throw new IOException("No URLs given");
+      }
+      final String url = urls.get(0);
+
       // Reset custom duration and bitrate for non-encrypted streaming audio
       this.useCustomDurationAndBitrate = false;
       this.encryptedBitrate = 0;
       this.encryptedDuration = 0f;
+      this.currentStreamUrl = null;
       
       initializeExoPlayer();
       this.isStreaming = true;
+      this.currentStreamUrl = url;
       
       // Create a custom data source factory for streaming with chunk processing
-      StreamingDataSource.Factory dataSourceFactory = new StreamingDataSource.Factory(url, getReactApplicationContext());
+      StreamingDataSource.Factory dataSourceFactory = createPlaybackFactory(urls, null, null);
+      StartupStrategy startup = startupFor(url, 0);
       
       MediaSource mediaSource = new ProgressiveMediaSource.Factory(dataSourceFactory)
+              .setContinueLoadingCheckIntervalBytes(startup.continueLoadingCheckIntervalBytes)
+              .setLoadErrorHandlingPolicy(StreamingDataSource.LOAD_ERROR_HANDLING_POLICY)
               .createMediaSource(MediaItem.fromUri(url));
       
-      this.exoPlayer.setMediaSource(mediaSource);
+      setPlayerMedia(mediaSource, null, startup);
       this.exoPlayer.prepare();
       
       WritableMap params = Arguments.createMap();
@@ -363,10 +1180,16 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
     }
   }
 
-  private void prepareUrlWithStreamingEncrypted(final String url, String dekHex, String counterBaseHex, int bitrate, float duration) throws IOException {
+  private void prepareUrlWithStreamingEncrypted(final List<String> urls, String dekHex, String counterBaseHex, int bitrate, float duration) throws IOException {
     try {
+      if (urls.isEmpty()) {
+        throw new IOException("No URLs given");
+      }
+      final String url = urls.get(0);
+
       initializeExoPlayer();
       this.isStreaming = true;
+      this.currentStreamUrl = url;
       
       // Store custom values for encrypted audio
       this.encryptedBitrate = bitrate;
@@ -374,12 +1197,15 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
       this.useCustomDurationAndBitrate = true;
       
       // Create a custom data source factory for encrypted streaming with chunk processing
-      StreamingDataSource.Factory dataSourceFactory = new StreamingDataSource.Factory(url, getReactApplicationContext(), dekHex, counterBaseHex);
+      StreamingDataSource.Factory dataSourceFactory = createPlaybackFactory(urls, dekHex, counterBaseHex);
+      StartupStrategy startup = startupFor(url, bitrate);
       
       MediaSource mediaSource = new ProgressiveMediaSource.Factory(dataSourceFactory)
+              .setContinueLoadingCheckIntervalBytes(startup.continueLoadingCheckIntervalBytes)
+              .setLoadErrorHandlingPolicy(StreamingDataSource.LOAD_ERROR_HANDLING_POLICY)
               .createMediaSource(MediaItem.fromUri(url));
       
-      this.exoPlayer.setMediaSource(mediaSource);
+      setPlayerMedia(mediaSource, null, startup);
       this.exoPlayer.prepare();
       
       WritableMap params = Arguments.createMap();
@@ -403,20 +1229,254 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
     }
   }
 
+  private void prepareUrlWithStreamingVariants(ReadableArray ladder, float duration) throws IOException {
+    try {
+      List<VariantSwitcher.Variant> variants = new ArrayList<>();
+      for (int i = 0; i < ladder.size(); i++) {
+        ReadableMap entry = ladder.getMap(i);
+        if (entry == null || !entry.hasKey("url") || !entry.hasKey("bitrate")) {
+          throw new IOException("Every variant needs a url and a bitrate");
+        }
+        variants.add(new VariantSwitcher.Variant(entry.getString("url"), entry.getInt("bitrate"),
+                entry.hasKey("dekHex") ? entry.getString("dekHex") : null,
+                entry.hasKey("counterBaseHex") ? entry.getString("counterBaseHex") : null));
+      }
+      if (variants.isEmpty()) {
+        throw new IOException("No variants given");
+      }
+
+      initializeExoPlayer();
+      this.isStreaming = true;
+      // Variants have separate headers, metadata isn't cached for the ladder as a whole
+      this.currentStreamUrl = null;
+      this.encryptedDuration = duration;
+      this.useCustomDurationAndBitrate = duration > 0;
+
+      // The host's history knows more about this stream than the meter's network-wide estimate
+      BandwidthHistory.Entry history = bandwidthHistory.get(BandwidthHistory.hostOf(variants.get(0).url));
+      long bitrateEstimate = history != null ? (long) history.bitrate : bandwidthMeter.getBitrateEstimate();
+      VariantSwitcher switcher = new VariantSwitcher(variants, new VariantSwitcher.FactoryProvider() {
+        @Override
+        public DataSource.Factory create(VariantSwitcher.Variant variant) {
+          return createPlaybackFactory(Collections.singletonList(variant.url), variant.dekHex, variant.counterBaseHex);
+        }
+      }, (long) (duration * 1000), bitrateEstimate);
+      VariantSwitcher.Variant initial = switcher.getVariantAt(0);
+      this.encryptedBitrate = initial.bitrate;
+      StartupStrategy startup = StartupStrategy.from(history, initial.bitrate, fastStartEnabled);
+      switcher.setContinueLoadingCheckIntervalBytes(startup.continueLoadingCheckIntervalBytes);
+
+      setPlayerMedia(switcher.getMediaSource(), null, startup, switcher);
+      this.exoPlayer.prepare();
+
+      WritableMap params = Arguments.createMap();
+      params.putBoolean("success", true);
+      params.putInt("bitrate", initial.bitrate);
+      params.putDouble("duration", duration);
+      sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING, params);
+
+      WritableMap onFinishedLoadingURLParams = Arguments.createMap();
+      onFinishedLoadingURLParams.putBoolean("success", true);
+      onFinishedLoadingURLParams.putString("url", initial.url);
+      onFinishedLoadingURLParams.putInt("bitrate", initial.bitrate);
+      onFinishedLoadingURLParams.putDouble("duration", duration);
+      sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING_URL, onFinishedLoadingURLParams);
+    } catch (Exception e) {
+      WritableMap errorParams = Arguments.createMap();
+      errorParams.putString("error", e.getMessage());
+      sendEvent(getReactApplicationContext(), EVENT_SETUP_ERROR, errorParams);
+    }
+  }
+
+  // Moves a variant track to the variant that fits the measured bandwidth while it plays
+  private final Runnable variantChecker = new Runnable() {
+    @Override
+    public void run() {
+      VariantSwitcher switcher = currentVariantSwitcher;
+      if (exoPlayer == null || switcher == null) {
+        return;
+      }
+      if (exoPlayer.isPlaying()) {
+        long bitrateEstimate = bandwidthMeter.getBitrateEstimate();
+        // Only segments the player hasn't started loading change, what is buffered plays on
+        long bufferedPositionMs = getTrackPositionMs() + exoPlayer.getTotalBufferedDuration();
+        if (switcher.switchTo(bufferedPositionMs, bitrateEstimate) != null) {
+          variantSwitchEstimate = bitrateEstimate;
+        }
+      }
+      playerHandler.postDelayed(this, VariantSwitcher.CHECK_INTERVAL_MS);
+    }
+  };
+
+  // Reports a variant once it is heard, which is at the next segment boundary after a switch
+  private void onVariantPlayed() {
+    VariantSwitcher switcher = currentVariantSwitcher;
+    if (switcher == null) {
+      return;
+    }
+    VariantSwitcher.Variant variant = switcher.getVariantAt(getTrackPositionMs());
+    if (variant == playedVariant) {
+      return;
+    }
+    playedVariant = variant;
+    encryptedBitrate = variant.bitrate;
+    WritableMap params = Arguments.createMap();
+    params.putString("url", variant.url);
+    params.putInt("bitrate", variant.bitrate);
+    params.putDouble("estimate", variantSwitchEstimate);
+    sendEvent(getReactApplicationContext(), EVENT_VARIANT_CHANGED, params);
+  }
+
+  // Data sources for the main player, `urls` are mirrors of the same content
+  private StreamingDataSource.Factory createPlaybackFactory(List<String> urls, @Nullable String dekHex, @Nullable String counterBaseHex) {
+    String url = urls.get(0);
+    StreamingDataSource.Factory factory = dekHex != null && counterBaseHex != null
+            ? new StreamingDataSource.Factory(url, getReactApplicationContext(), dekHex, counterBaseHex)
+            : new StreamingDataSource.Factory(url, getReactApplicationContext());
+    return factory
+            .setDownloadManager(downloadManager)
+            .setLoadScheduler(loadScheduler, LoadScheduler.PRIORITY_PLAYBACK)
+            .setChunkTap(chunkTap)
+            .setOriginSelector(createOriginSelector(urls))
+            .setConnectionSuspender(connectionSuspender)
+            .setHeaderCache(headerCache)
+            .setConnectionLinger(new ConnectionLinger())
+            .setBufferPool(bufferPool)
+            .setBandwidthHistory(bandwidthHistory)
+            .setFastStart(fastStartEnabled);
+  }
+
+  private StartupStrategy startupFor(String url, int bitrate) {
+    StartupStrategy startup = StartupStrategy.from(bandwidthHistory.get(BandwidthHistory.hostOf(url)), bitrate, fastStartEnabled);
+    if (startup != StartupStrategy.DEFAULT) {
+      Log.d("RNSoundPlayer", String.format("Starting at %dms buffered, loading checked every %d bytes",
+              startup.startBufferMs, startup.continueLoadingCheckIntervalBytes));
+    }
+    return startup;
+  }
+
+  private void prepareFileEncrypted(String path, String dekHex, String counterBaseHex) throws IOException {
+    try {
+      // Local files are seekable, so ExoPlayer can work out duration and bitrate itself
+      this.useCustomDurationAndBitrate = false;
+      this.encryptedBitrate = 0;
+      this.encryptedDuration = 0f;
+      this.currentStreamUrl = null;
+
+      File file = getFileFromPath(path);
+      if (!file.exists()) {
+        throw new IOException("File not found: " + file.getAbsolutePath());
+      }
+
+      initializeExoPlayer();
+      this.isStreaming = false;
+
+      EncryptedFileDataSource.Factory dataSourceFactory =
+              new EncryptedFileDataSource.Factory(file.getAbsolutePath(), dekHex, counterBaseHex);
+
+      MediaSource mediaSource = new ProgressiveMediaSource.Factory(dataSourceFactory)
+              .createMediaSource(MediaItem.fromUri(Uri.fromFile(file)));
+
+      setPlayerMedia(mediaSource, null);
+      this.exoPlayer.prepare();
+
+      sendMountFileSuccessEvents(path, "");
+    } catch (Exception e) {
+      sendErrorEvent(new IOException(e.getMessage()));
+    }
+  }
+
+  private static List<String> toUrlList(ReadableArray urls) {
+    List<String> list = new ArrayList<>();
+    for (int i = 0; i < urls.size(); i++) {
+      String url = urls.getString(i);
+      if (url != null && !url.isEmpty() && !list.contains(url)) {
+        list.add(url);
+      }
+    }
+    return list;
+  }
+
+  // A single URL needs no selector, the data source then talks to it directly
+  @Nullable
+  private OriginSelector createOriginSelector(List<String> urls) {
+    return urls.size() > 1 ? new OriginSelector(urls, mirrorRaceWidth, mirrorHedgeDelayMs) : null;
+  }
+
+  // Accepts absolute paths and file:// URIs, anything else is resolved against the app's files directory
+  private File getFileFromPath(String path) {
+    if (path.startsWith("file://")) {
+      return new File(Uri.parse(path).getPath());
+    }
+    if (path.startsWith("/")) {
+      return new File(path);
+    }
+    return new File(getReactApplicationContext().getFilesDir(), path);
+  }
+
+  // Builds a DataSource for a {url} or {path} source descriptor, optionally with dekHex/counterBaseHex
+  private DataSource createSourceDataSource(ReadableMap source) throws IOException {
+    String dekHex = source.hasKey("dekHex") ? source.getString("dekHex") : null;
+    String counterBaseHex = source.hasKey("counterBaseHex") ? source.getString("counterBaseHex") : null;
+    boolean encrypted = dekHex != null && counterBaseHex != null;
+
+    if (source.hasKey("url")) {
+      String url = source.getString("url");
+      StreamingDataSource.Factory factory = encrypted
+              ? new StreamingDataSource.Factory(url, getReactApplicationContext(), dekHex, counterBaseHex)
+              : new StreamingDataSource.Factory(url, getReactApplicationContext());
+      return factory
+              .setDownloadManager(downloadManager)
+              .setLoadScheduler(loadScheduler, LoadScheduler.PRIORITY_BACKGROUND)
+              .setChunkEventsEnabled(false)
+              .setBufferPool(bufferPool)
+              .createDataSource();
+    }
+    if (source.hasKey("path")) {
+      File file = getFileFromPath(source.getString("path"));
+      return encrypted
+              ? new EncryptedFileDataSource(file.getAbsolutePath(), dekHex, counterBaseHex)
+              : new FileDataSource();
+    }
+    throw new IOException("Source must have a url or a path");
+  }
+
+  private Uri getSourceUri(ReadableMap source) {
+    if (source.hasKey("url")) {
+      return Uri.parse(source.getString("url"));
+    }
+    return Uri.fromFile(getFileFromPath(source.getString("path")));
+  }
+
   private void initializeExoPlayer() {
     if (this.exoPlayer == null) {
-      // Use custom LoadControl to limit buffering for encrypted streams
-      com.google.android.exoplayer2.DefaultLoadControl loadControl = new com.google.android.exoplayer2.DefaultLoadControl.Builder()
-              .setBufferDurationsMs(
+      // Use custom LoadControl to limit buffering for encrypted streams, its ceiling is lowered
+      // further under memory pressure
+      this.loadControl = new AdaptiveLoadControl(
                       2000,   // Min buffer (2s) - reduced from default 
                       8000,   // Max buffer (8s) - reduced from default 50s
                       1500,   // Buffer for playback (1.5s)
                       2000    // Buffer for playback after rebuffer (2s)
-              )
-              .build();
+              );
+      this.playerReleased = false;
       
-      this.exoPlayer = new ExoPlayer.Builder(getReactApplicationContext())
+      // Route decoded PCM through the level meter on its way to the AudioTrack
+      DefaultRenderersFactory renderersFactory = new DefaultRenderersFactory(getReactApplicationContext()) {
+        @Override
+        protected AudioSink buildAudioSink(Context context, boolean enableFloatOutput,
+                                           boolean enableAudioTrackPlaybackParams, boolean enableOffload) {
+          return new DefaultAudioSink.Builder()
+                  .setAudioCapabilities(AudioCapabilities.getCapabilities(context))
+                  .setEnableFloatOutput(enableFloatOutput)
+                  .setEnableAudioTrackPlaybackParams(enableAudioTrackPlaybackParams)
+                  .setAudioProcessors(new AudioProcessor[] { new TeeAudioProcessor(levelMeter) })
+                  .build();
+        }
+      };
+
+      this.exoPlayer = new ExoPlayer.Builder(getReactApplicationContext(), renderersFactory)
               .setLoadControl(loadControl)
+              .setBandwidthMeter(bandwidthMeter)
               .build();
       
       // Set audio attributes
@@ -430,6 +1490,9 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
       this.exoPlayer.addListener(new Player.Listener() {
         @Override
         public void onPlaybackStateChanged(int playbackState) {
+          if (playbackState == Player.STATE_READY && currentStreamUrl != null) {
+            rememberStreamMetadata();
+          }
           if (playbackState == Player.STATE_ENDED) {
             WritableMap params = Arguments.createMap();
             params.putBoolean("success", true);
@@ -437,20 +1500,47 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
           }
         }
 
+        @Override
+        public void onPositionDiscontinuity(Player.PositionInfo oldPosition, Player.PositionInfo newPosition, int reason) {
+          if (reason == Player.DISCONTINUITY_REASON_AUTO_TRANSITION && isLoopWrap(oldPosition, newPosition)) {
+            onLoopCompleted();
+          }
+          onVariantPlayed();
+        }
+
         @Override
         public void onPlayerError(PlaybackException error) {
+          if (StreamingDataSource.ContentChangedException.isCause(error) && !contentChangeRestarted) {
+            // The cached header or partial download is stale and was dropped. Preparing again
+            // keeps the position and parses the header of the new track from byte 0 before
+            // reading on from there.
+            contentChangeRestarted = true;
+            Log.w("RNSoundPlayer", "Track changed on the server, preparing it again: " + error.getMessage());
+            exoPlayer.prepare();
+            return;
+          }
           Log.e("RNSoundPlayer", "ExoPlayer error: " + error.getMessage());
           WritableMap errorParams = Arguments.createMap();
           errorParams.putString("error", error.getMessage());
           sendEvent(getReactApplicationContext(), EVENT_SETUP_ERROR, errorParams);
         }
         
+        @Override
+        public void onIsPlayingChanged(boolean isPlaying) {
+          reportForegroundBuffer();
+        }
+
+        @Override
+        public void onPlayWhenReadyChanged(boolean playWhenReady, int reason) {
+          scheduleIdleSuspend();
+        }
+
         @Override
         public void onIsLoadingChanged(boolean isLoading) {
           if (isStreaming && !isLoading) {
             // Simulate chunk processing for streaming
-            long position = exoPlayer.getCurrentPosition();
-            long duration = exoPlayer.getDuration();
+            long position = getTrackPositionMs();
+            long duration = getTrackDurationMs();
             
             WritableMap chunkData = Arguments.createMap();
             chunkData.putDouble("position", position);
@@ -460,577 +1550,219 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements L
           }
         }
       });
+
+      this.playerHandler = new Handler(this.exoPlayer.getApplicationLooper());
+      this.playerHandler.post(foregroundBufferReporter);
+      applyBufferCeiling(memoryGovernor.getPressure());
     }
   }
 
-  private void sendMountFileSuccessEvents(String name, String type) {
-    WritableMap params = Arguments.createMap();
-    params.putBoolean("success", true);
-    sendEvent(reactContext, EVENT_FINISHED_LOADING, params);
-
-    WritableMap onFinishedLoadingFileParams = Arguments.createMap();
-    onFinishedLoadingFileParams.putBoolean("success", true);
-    onFinishedLoadingFileParams.putString("name", name);
-    onFinishedLoadingFileParams.putString("type", type);
-    sendEvent(reactContext, EVENT_FINISHED_LOADING_FILE, onFinishedLoadingFileParams);
+  // Stores what ExoPlayer worked out about the streamed track next to its cached header
+  private void rememberStreamMetadata() {
+    long durationMs = exoPlayer.getDuration();
+    if (durationMs == C.TIME_UNSET) {
+      return;
+    }
+    int bitrate = encryptedBitrate;
+    if (bitrate <= 0 && exoPlayer.getAudioFormat() != null) {
+      bitrate = Math.max(0, exoPlayer.getAudioFormat().bitrate);
+    }
+    headerCache.updateMetadata(currentStreamUrl, durationMs, bitrate);
   }
 
-  private void sendErrorEvent(IOException e) {
-    WritableMap errorParams = Arguments.createMap();
-    errorParams.putString("error", e.getMessage());
-    sendEvent(reactContext, EVENT_SETUP_ERROR, errorParams);
+  private void setPlayerMedia(@Nullable MediaSource mediaSource, @Nullable MediaItem mediaItem) {
+    setPlayerMedia(mediaSource, mediaItem, StartupStrategy.DEFAULT);
   }
 
-  // Custom DataSource for chunk processing with ExoPlayer
-  // 
-  // Key Features (based on Medium article best practices):
-  // 1. AES-CTR block alignment for encrypted seeking
-  // 2. Separate buffers for encrypted/decrypted data
-  // 3. Precise HTTP Range requests
-  // 4. Proper return value handling (decrypted bytes vs network bytes)
-  // 5. Enhanced error handling and logging
-  //
-  // Data Flow: HTTP Stream → encryptedBuffer → decrypt → decryptedBuffer → ExoPlayer buffer
-  private static class StreamingDataSource implements DataSource {
-    private final String url;
-    private final ReactApplicationContext reactContext;
-    private HttpURLConnection connection;
-    private InputStream inputStream;
-    private long bytesRemaining;
-    private boolean opened;
-    private DataSpec dataSpec;
-    
-    // Decryption fields
-    private byte[] dekKey;
-    private byte[] counterBase;
-    private boolean decryptionEnabled = false;
-    private long totalBytesRead = 0;
-    
-    // Header buffering fields
-    private static final int HEADER_BUFFER_SIZE = 8192; // Enough for most audio headers
-    private ByteArrayOutputStream headerBuffer = new ByteArrayOutputStream();
-    private boolean headersReady = false;
-    private int headerBytesConsumed = 0; // Track how much of header buffer we've given to ExoPlayer
-    
-    // Bouncy Castle CTR cipher
-    private SICBlockCipher ctrCipher;
-    private byte[] encryptedBuffer;  // Separate buffer for encrypted data
-    private byte[] decryptedBuffer;  // Separate buffer for decrypted data
-    private static final int MAX_CHUNK_SIZE = 64 * 1024; // 64KB max chunk size
-    private static final int AES_BLOCK_SIZE = 16; // AES block size for alignment
+  private void setPlayerMedia(@Nullable MediaSource mediaSource, @Nullable MediaItem mediaItem, StartupStrategy startup) {
+    setPlayerMedia(mediaSource, mediaItem, startup, null);
+  }
 
-    public StreamingDataSource(String url, ReactApplicationContext reactContext) {
-      this.url = url;
-      this.reactContext = reactContext;
+  private void setPlayerMedia(@Nullable MediaSource mediaSource, @Nullable MediaItem mediaItem, StartupStrategy startup,
+                              @Nullable VariantSwitcher variantSwitcher) {
+    this.currentMediaSource = mediaSource;
+    this.currentMediaItem = mediaItem;
+    this.currentStartup = startup;
+    this.currentVariantSwitcher = variantSwitcher;
+    this.playedVariant = variantSwitcher != null ? variantSwitcher.getVariantAt(0) : null;
+    this.contentChangeRestarted = false;
+    playerHandler.removeCallbacks(variantChecker);
+    if (variantSwitcher != null) {
+      playerHandler.postDelayed(variantChecker, VariantSwitcher.CHECK_INTERVAL_MS);
     }
-    
-    public StreamingDataSource(String url, ReactApplicationContext reactContext, String dekHex, String counterBaseHex) {
-      this.url = url;
-      this.reactContext = reactContext;
-      
-      if (dekHex != null && !dekHex.isEmpty() && counterBaseHex != null && !counterBaseHex.isEmpty()) {
-        try {
-          // Add Bouncy Castle provider if not already added
-          if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
-            Security.addProvider(new BouncyCastleProvider());
-          }
-          
-          this.dekKey = hexToByteArray(dekHex);
-          this.counterBase = hexToByteArray(counterBaseHex);
-          
-          // Initialize Bouncy Castle CTR cipher
-          this.ctrCipher = new SICBlockCipher(new AESEngine());
-          
-          // Initialize separate buffers for encrypted and decrypted data
-          this.encryptedBuffer = new byte[MAX_CHUNK_SIZE];
-          this.decryptedBuffer = new byte[MAX_CHUNK_SIZE];
-          
-          this.decryptionEnabled = true;
-          Log.d("StreamingDataSource", "Decryption enabled with Bouncy Castle AES-CTR, max chunk size: " + MAX_CHUNK_SIZE);
-        } catch (Exception e) {
-          Log.e("StreamingDataSource", "Failed to initialize decryption: " + e.getMessage());
-          this.decryptionEnabled = false;
-        }
-      }
+    loadControl.setStartBufferMs(startup.startBufferMs);
+    // A trailing seek belongs to the previous media
+    this.pendingSeekMs = C.TIME_UNSET;
+    if (mediaSource != null) {
+      this.exoPlayer.setMediaSource(mediaSource);
+    } else {
+      this.exoPlayer.setMediaItem(mediaItem);
     }
+    resetLoops();
+    // A track that is only loaded counts as paused
+    liftLoadSuspension();
+    scheduleIdleSuspend();
+  }
 
-    @Override
-    public void addTransferListener(TransferListener transferListener) {
-      // Optional: implement transfer listener for progress tracking
+  // (Re)starts the idle countdown while paused and lifts a suspension once playback resumes
+  private void scheduleIdleSuspend() {
+    if (playerHandler == null) {
+      return;
     }
+    playerHandler.removeCallbacks(idleSuspender);
+    boolean paused = exoPlayer != null && !exoPlayer.getPlayWhenReady();
+    if (paused && idleSuspendTimeoutMs > 0) {
+      playerHandler.postDelayed(idleSuspender, idleSuspendTimeoutMs);
+    } else if (!paused) {
+      liftLoadSuspension();
+    }
+  }
 
-    @Override
-    public long open(DataSpec dataSpec) throws HttpDataSource.HttpDataSourceException {
-      // CRITICAL: Align position to AES block boundary for encrypted streams
-      DataSpec alignedDataSpec = dataSpec;
-      if (decryptionEnabled) {
-        alignedDataSpec = alignDataSpecToBlockBoundary(dataSpec);
-        Log.d("StreamingDataSource", String.format("Block alignment: original pos=%d, aligned pos=%d", 
-               dataSpec.position, alignedDataSpec.position));
-      }
-      
-      this.dataSpec = alignedDataSpec;
-      this.opened = true;
-      this.totalBytesRead = 0; // Reset counter for new stream
-      
-      // Reset header buffering state for new stream
-      this.headerBuffer.reset();
-      this.headersReady = false;
-      this.headerBytesConsumed = 0;
-
-      try {
-        connection = createConnection();
-        
-        // Handle range requests for seeking with improved precision
-        if (alignedDataSpec.position != 0) {
-          String rangeHeader = buildRangeRequestHeader(alignedDataSpec.position, alignedDataSpec.length);
-          connection.setRequestProperty("Range", rangeHeader);
-          Log.d("StreamingDataSource", "Range request: " + rangeHeader);
-        }
-        
-        connection.connect();
-        
-        int responseCode = connection.getResponseCode();
-        if (responseCode < 200 || responseCode > 299) {
-          String errorMessage = String.format("HTTP error: %d %s for URL: %s", 
-                  responseCode, connection.getResponseMessage(), url);
-          Log.e("StreamingDataSource", errorMessage);
-          throw new HttpDataSource.HttpDataSourceException(
-            errorMessage, 
-            alignedDataSpec, 
-            HttpDataSource.HttpDataSourceException.TYPE_OPEN
-          );
-        }
-        
-        // Log successful response
-        Log.d("StreamingDataSource", String.format("HTTP %d: %s", responseCode, connection.getResponseMessage()));
-        
-        inputStream = connection.getInputStream();
-        
-        long contentLength = connection.getContentLength();
-        bytesRemaining = alignedDataSpec.length != C.LENGTH_UNSET ? alignedDataSpec.length : contentLength;
-        
-        // Log connection details for debugging
-        Log.d("StreamingDataSource", String.format("Connected: %s, Content-Length: %d, Bytes remaining: %d", 
-               url, contentLength, bytesRemaining));
-        
-        return bytesRemaining;
-      } catch (IOException e) {
-        Log.e("StreamingDataSource", "Connection failed for URL: " + url, e);
-        throw new HttpDataSource.HttpDataSourceException(
-          "Unable to connect to: " + url, 
-          e, 
-          alignedDataSpec, 
-          HttpDataSource.HttpDataSourceException.TYPE_OPEN
-        );
-      }
+  private void liftLoadSuspension() {
+    if (!loadSuspended) {
+      return;
     }
+    loadSuspended = false;
+    // The next read reconnects with a Range request where the stream left off
+    loadControl.setLoadingSuspended(false);
+    Log.d("RNSoundPlayer", "Loading resumed");
+  }
 
+  private final Runnable idleSuspender = new Runnable() {
     @Override
-    public int read(byte[] buffer, int offset, int readLength) throws HttpDataSource.HttpDataSourceException {
-      if (readLength == 0) {
-        return 0;
-      }
-      
-      if (bytesRemaining == 0) {
-        return C.RESULT_END_OF_INPUT;
-      }
-
-      if (!headersReady) {
-        // Keep buffering until we have enough header data
-        try {
-          bufferHeaderData(readLength);
-          
-          if (headerBuffer.size() >= HEADER_BUFFER_SIZE) {
-            headersReady = true;
-            Log.d("StreamingDataSource", "Headers buffered (" + headerBuffer.size() + " bytes), ready for ExoPlayer");
-          } else {
-            // Return 0 to make ExoPlayer wait
-            Log.d("StreamingDataSource", "Buffering headers: " + headerBuffer.size() + "/" + HEADER_BUFFER_SIZE + " bytes");
-            return 0;
-          }
-        } catch (IOException e) {
-          throw new HttpDataSource.HttpDataSourceException(
-            "Header buffering error", 
-            e, 
-            dataSpec, 
-            HttpDataSource.HttpDataSourceException.TYPE_READ
-          );
-        }
-      }
-      
-             // Now proceed with normal reading
-       return performNormalRead(buffer, offset, readLength);
-     }
-
-    private void bufferHeaderData(int requestedLength) throws IOException {
-      // Only buffer if we haven't reached our target size
-      if (headerBuffer.size() >= HEADER_BUFFER_SIZE) {
+    public void run() {
+      if (exoPlayer == null || exoPlayer.getPlayWhenReady()) {
         return;
       }
-      
-      int bytesToBuffer = Math.min(requestedLength, HEADER_BUFFER_SIZE - headerBuffer.size());
-      byte[] tempBuffer = new byte[bytesToBuffer];
-      
-      int bytesRead = inputStream.read(tempBuffer, 0, bytesToBuffer);
-      if (bytesRead > 0) {
-        if (decryptionEnabled) {
-          // For encrypted streams, decrypt the header data as we buffer it
-          long actualStreamPosition = dataSpec.position + totalBytesRead;
-          System.arraycopy(tempBuffer, 0, encryptedBuffer, 0, bytesRead);
-          int decryptedBytes = decryptChunkToSeparateBuffer(bytesRead, actualStreamPosition);
-          
-          // Add decrypted data to header buffer
-          headerBuffer.write(decryptedBuffer, 0, decryptedBytes);
-          
-          // Update counters
-          if (bytesRemaining != C.LENGTH_UNSET) {
-            bytesRemaining -= bytesRead;
-          }
-          totalBytesRead += bytesRead;
-          
-          Log.d("StreamingDataSource", String.format("Buffered %d encrypted->%d decrypted header bytes", bytesRead, decryptedBytes));
-        } else {
-          // For non-encrypted streams, buffer data directly
-          headerBuffer.write(tempBuffer, 0, bytesRead);
-          
-          // Update counters
-          if (bytesRemaining != C.LENGTH_UNSET) {
-            bytesRemaining -= bytesRead;
-          }
-          totalBytesRead += bytesRead;
-          
-          Log.d("StreamingDataSource", String.format("Buffered %d header bytes", bytesRead));
-        }
-        
-        // Check if headers are now complete and debug if so
-        if (headerBuffer.size() >= HEADER_BUFFER_SIZE) {
-          Log.d("StreamingDataSource", "=== HEADERS COMPLETE - DEBUGGING DECRYPTED DATA ===");
-          byte[] headerData = headerBuffer.toByteArray();
-          debugDecryptedData(headerData, headerData.length);
-        }
+      if (!loadSuspended) {
+        loadSuspended = true;
+        loadControl.setLoadingSuspended(true);
+        Log.d("RNSoundPlayer", "Paused for " + idleSuspendTimeoutMs + "ms, suspending loading");
+
+        WritableMap params = Arguments.createMap();
+        params.putDouble("position", getTrackPositionMs() / 1000.0);
+        params.putDouble("buffered", exoPlayer.getTotalBufferedDuration() / 1000.0);
+        sendEvent(getReactApplicationContext(), EVENT_LOAD_SUSPENDED, params);
       }
-    }
-
-    private int performNormalRead(byte[] buffer, int offset, int readLength) throws HttpDataSource.HttpDataSourceException {
-      try {
-        // First, serve any remaining header data
-        if (headerBytesConsumed < headerBuffer.size()) {
-          byte[] headerData = headerBuffer.toByteArray();
-          int availableHeaderBytes = headerBuffer.size() - headerBytesConsumed;
-          int headerBytesToReturn = Math.min(readLength, availableHeaderBytes);
-          
-          System.arraycopy(headerData, headerBytesConsumed, buffer, offset, headerBytesToReturn);
-          headerBytesConsumed += headerBytesToReturn;
-          
-          Log.d("StreamingDataSource", String.format("Served %d bytes from header buffer (%d/%d consumed)", 
-                headerBytesToReturn, headerBytesConsumed, headerBuffer.size()));
-          
-          return headerBytesToReturn;
-        }
-        
-        // Header data exhausted, proceed with normal streaming
-        // Limit chunk size for encrypted streams to prevent memory issues
-        int bytesToRead = bytesRemaining != C.LENGTH_UNSET ? 
-          (int) Math.min(readLength, bytesRemaining) : readLength;
-          
-        // Further limit chunk size for encrypted streams
-        if (decryptionEnabled) {
-          bytesToRead = Math.min(bytesToRead, MAX_CHUNK_SIZE);
-        }
-        
-        if (decryptionEnabled) {
-          // Read encrypted data from network into our encrypted buffer
-          int encryptedBytesRead = inputStream.read(encryptedBuffer, 0, bytesToRead);
-          
-          if (encryptedBytesRead > 0) {
-            if (bytesRemaining != C.LENGTH_UNSET) {
-              bytesRemaining -= encryptedBytesRead;
-            }
-            
-            // Decrypt from encrypted buffer to decrypted buffer
-            // Use the aligned position from dataSpec for counter calculation
-            long actualStreamPosition = dataSpec.position + totalBytesRead;
-            int decryptedBytes = decryptChunkToSeparateBuffer(encryptedBytesRead, actualStreamPosition);
-            
-            // Copy decrypted data to ExoPlayer's buffer
-            System.arraycopy(decryptedBuffer, 0, buffer, offset, decryptedBytes);
-            
-            // Send chunk event with network bytes read (for progress tracking)
-            sendChunkEvent(encryptedBytesRead, dataSpec.position + totalBytesRead);
-            totalBytesRead += encryptedBytesRead;
-            
-            // CRITICAL FIX: Return decrypted bytes given to ExoPlayer, not network bytes
-            return decryptedBytes;
-          }
-          
-          // Return -1 for EOF or error
-          return encryptedBytesRead;
-        } else {
-          // For non-encrypted data, read directly to ExoPlayer's buffer
-          int bytesRead = inputStream.read(buffer, offset, bytesToRead);
-          
-          if (bytesRead > 0) {
-            if (bytesRemaining != C.LENGTH_UNSET) {
-              bytesRemaining -= bytesRead;
-            }
-            
-            // Send chunk event with minimal data
-            sendChunkEvent(bytesRead, dataSpec.position + totalBytesRead);
-            totalBytesRead += bytesRead;
-          }
-          
-          return bytesRead;
-        }
-      } catch (IOException e) {
-        throw new HttpDataSource.HttpDataSourceException(
-          "Read error", 
-          e, 
-          dataSpec, 
-          HttpDataSource.HttpDataSourceException.TYPE_READ
-        );
+      // A read in flight keeps its connection busy, try again once it has finished
+      if (!connectionSuspender.suspendAll()) {
+        playerHandler.postDelayed(this, IDLE_SUSPEND_RETRY_MS);
       }
     }
+  };
 
-    @Override
-    public Uri getUri() {
-      return Uri.parse(url);
+  private void releasePlayer() {
+    if (exoPlayer != null) {
+      playerHandler.removeCallbacks(foregroundBufferReporter);
+      playerHandler.removeCallbacks(idleSuspender);
+      playerHandler.removeCallbacks(pendingSeekApplier);
+      playerHandler.removeCallbacks(variantChecker);
+      pendingSeekMs = C.TIME_UNSET;
+      loadSuspended = false;
+      exoPlayer.release();
+      exoPlayer = null;
     }
+    reportForegroundBuffer();
+  }
 
-    @Override
-    public void close() throws HttpDataSource.HttpDataSourceException {
-      try {
-        if (inputStream != null) {
-          inputStream.close();
-          inputStream = null;
-        }
-        if (connection != null) {
-          connection.disconnect();
-          connection = null;
-        }
-        
-        // Clear sensitive data
-        if (encryptedBuffer != null) {
-          java.util.Arrays.fill(encryptedBuffer, (byte) 0);
-        }
-        if (decryptedBuffer != null) {
-          java.util.Arrays.fill(decryptedBuffer, (byte) 0);
-        }
-        
-        // Reset Bouncy Castle cipher
-        if (ctrCipher != null) {
-          ctrCipher.reset();
-        }
-        
-        // Clear header buffer
-        if (headerBuffer != null) {
-          headerBuffer.reset();
-        }
-        headersReady = false;
-        headerBytesConsumed = 0;
-        
-        opened = false;
-      } catch (IOException e) {
-        throw new HttpDataSource.HttpDataSourceException(
-          "Close error", 
-          e, 
-          dataSpec, 
-          HttpDataSource.HttpDataSourceException.TYPE_CLOSE
-        );
-      }
+  // Applies the memory governor's pressure level to the player, on the player's looper
+  private void trimPlayer(int pressure) {
+    if (exoPlayer == null) {
+      return;
     }
-
-    private HttpURLConnection createConnection() throws IOException {
-      URL urlObj = new URL(url);
-      HttpURLConnection conn = (HttpURLConnection) urlObj.openConnection();
-      conn.setRequestMethod("GET");
-      conn.setConnectTimeout(10000);
-      conn.setReadTimeout(10000);
-      conn.setRequestProperty("User-Agent", "RNSoundPlayer");
-      return conn;
+    applyBufferCeiling(pressure);
+    if (pressure == MemoryGovernor.PRESSURE_NONE) {
+      return;
     }
+    loadControl.trim();
 
-    // CRITICAL: Align DataSpec position to AES block boundary for encrypted streams
-    private DataSpec alignDataSpecToBlockBoundary(DataSpec dataSpec) {
-      long alignedPosition = (dataSpec.position / AES_BLOCK_SIZE) * AES_BLOCK_SIZE;
-      
-      // If we had to align backwards, we need to adjust the length accordingly
-      long positionDiff = dataSpec.position - alignedPosition;
-      long adjustedLength = dataSpec.length;
-      
-      if (dataSpec.length != C.LENGTH_UNSET && positionDiff > 0) {
-        adjustedLength = dataSpec.length + positionDiff;
-      }
-      
-      return dataSpec.buildUpon()
-              .setPosition(alignedPosition)
-              .setLength(adjustedLength)
-              .build();
+    // A playing track keeps going, a paused one gives back its codec, buffers and connection
+    if (pressure >= MemoryGovernor.PRESSURE_MODERATE && !exoPlayer.getPlayWhenReady()) {
+      releaseIdlePlayer();
     }
+  }
 
-    // Build precise HTTP Range header
-    private String buildRangeRequestHeader(long position, long length) {
-      if (length != C.LENGTH_UNSET) {
-        return "bytes=" + position + "-" + (position + length - 1);
-      } else {
-        return "bytes=" + position + "-";
-      }
+  private void applyBufferCeiling(int pressure) {
+    if (pressure == MemoryGovernor.PRESSURE_NONE) {
+      loadControl.resetMaxBuffer();
+    } else if (pressure == MemoryGovernor.PRESSURE_BACKGROUND) {
+      loadControl.setMaxBufferMs(BACKGROUND_MAX_BUFFER_MS);
+    } else if (pressure == MemoryGovernor.PRESSURE_MODERATE) {
+      loadControl.setMaxBufferMs(MODERATE_PRESSURE_MAX_BUFFER_MS);
+    } else {
+      loadControl.setMaxBufferMs(CRITICAL_PRESSURE_MAX_BUFFER_MS);
     }
+    // The watermarks have to stay reachable under the new ceiling
+    loadScheduler.setBufferCeilingMs(pressure == MemoryGovernor.PRESSURE_NONE ? 0 : loadControl.getMaxBufferMs());
+  }
 
-    // Enhanced Bouncy Castle CTR decryption with 64-bit nonce
-    private int decryptChunkToSeparateBuffer(int length, long currentOffset) {
-      try {
-        Log.d("StreamingDataSource", String.format("Decrypting %d bytes at offset %d", length, currentOffset));
-        
-        if (!decryptionEnabled || ctrCipher == null || dekKey == null || counterBase == null) {
-          Log.w("StreamingDataSource", "Decryption disabled or missing components - copying raw data");
-          System.arraycopy(encryptedBuffer, 0, decryptedBuffer, 0, length);
-          return length;
-        }
-        
-        // Verify counter base is 16 bytes (128-bit IV)
-        if (counterBase.length != 16) {
-          Log.e("StreamingDataSource", "Invalid counter base length: " + counterBase.length + " (expected 16)");
-          System.arraycopy(encryptedBuffer, 0, decryptedBuffer, 0, length);
-          return length;
-        }
-        
-        // Calculate the block position for CTR mode
-        long blockPosition = currentOffset / AES_BLOCK_SIZE;
-        
-        // Create the IV: 64-bit nonce + 64-bit counter
-        byte[] iv = new byte[16];
-        
-        // Copy first 8 bytes as fixed nonce (unchanged throughout stream)
-        System.arraycopy(counterBase, 0, iv, 0, 8);
-        
-        // Extract the base counter value from last 8 bytes of counterBase
-        byte[] baseCounterBytes = new byte[8];
-        System.arraycopy(counterBase, 8, baseCounterBytes, 0, 8);
-        
-        // Convert base counter to long, add block position, convert back to bytes
-        long baseCounter = 0;
-        for (int i = 0; i < 8; i++) {
-          baseCounter = (baseCounter << 8) | (baseCounterBytes[i] & 0xFF);
-        }
-        
-        long currentCounter = baseCounter + blockPosition;
-        
-        // Convert counter back to bytes (big-endian, last 8 bytes of IV)
-        for (int i = 7; i >= 0; i--) {
-          iv[8 + i] = (byte) (currentCounter & 0xFF);
-          currentCounter >>>= 8;
-        }
-        
-        // Log nonce and counter for debugging
-        if (blockPosition == 0) {
-          Log.d("StreamingDataSource", String.format("64-bit nonce: %s", 
-                bytesToHex(iv, 0, 8)));
-          Log.d("StreamingDataSource", String.format("Base counter: %s", 
-                bytesToHex(counterBase, 8, 8)));
-        }
-        Log.d("StreamingDataSource", String.format("Block %d counter: %s", 
-              blockPosition, bytesToHex(iv, 8, 8)));
-        
-        // Initialize cipher with key and IV
-        KeyParameter keyParam = new KeyParameter(dekKey);
-        ParametersWithIV params = new ParametersWithIV(keyParam, iv);
-        ctrCipher.init(false, params); // false = decrypt mode
-        
-        // Decrypt the data
-        int decryptedBytes = ctrCipher.processBytes(encryptedBuffer, 0, length, decryptedBuffer, 0);
-        
-        Log.d("StreamingDataSource", String.format("✓ Decrypted %d bytes successfully (64-bit nonce CTR)", decryptedBytes));
-        return decryptedBytes;
-        
-      } catch (Exception e) {
-        Log.e("StreamingDataSource", "Bouncy Castle decryption failed: " + e.getMessage());
-        e.printStackTrace();
-        
-        // Fallback: copy encrypted data as-is
-        System.arraycopy(encryptedBuffer, 0, decryptedBuffer, 0, length);
-        return length;
-      }
-    }
-    
-    // Helper method to convert bytes to hex string for debugging
-    private String bytesToHex(byte[] bytes, int offset, int length) {
-      StringBuilder result = new StringBuilder();
-      for (int i = offset; i < offset + length && i < bytes.length; i++) {
-        result.append(String.format("%02X", bytes[i] & 0xFF));
-      }
-      return result.toString();
+  private void releaseIdlePlayer() {
+    if (currentMediaSource == null && currentMediaItem == null) {
+      return;
     }
-    
-    // Lightweight method to send chunk events
-    private void sendChunkEvent(int length, long position) {
-      try {
-        WritableMap chunkEventData = Arguments.createMap();
-        chunkEventData.putInt("chunkSize", length);
-        chunkEventData.putDouble("position", position);
-        chunkEventData.putBoolean("encrypted", decryptionEnabled);
-        
-        reactContext
-          .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-          .emit(EVENT_CHUNK_RECEIVED, chunkEventData);
-      } catch (Exception e) {
-        Log.e("StreamingDataSource", "Error sending chunk event: " + e.getMessage());
-      }
+    releasedPositionMs = getTrackPositionMs();
+    releasedDurationMs = getTrackDurationMs();
+    Log.d("RNSoundPlayer", "Releasing idle player under memory pressure at " + releasedPositionMs + "ms");
+    releasePlayer();
+    playerReleased = true;
+  }
+
+  // Rebuilds a player released by releaseIdlePlayer() where it left off
+  private void restoreReleasedPlayer() {
+    if (!playerReleased) {
+      return;
     }
-    
-    // After decryption, log the first 32 bytes as both hex and ASCII
-    private void debugDecryptedData(byte[] data, int length) {
-      StringBuilder hex = new StringBuilder();
-      StringBuilder ascii = new StringBuilder();
-      
-      for (int i = 0; i < Math.min(length, 32); i++) {
-        hex.append(String.format("%02X ", data[i] & 0xFF));
-        char c = (data[i] >= 32 && data[i] < 127) ? (char)data[i] : '.';
-        ascii.append(c);
+    long positionMs = releasedPositionMs;
+    int remaining = loopsRemaining;
+    int iteration = loopIteration;
+    initializeExoPlayer();
+    setPlayerMedia(currentMediaSource, currentMediaItem, currentStartup, currentVariantSwitcher);
+    // Carry on with the loops of the released player rather than starting over
+    loopsRemaining = remaining;
+    loopIteration = iteration;
+    this.exoPlayer.setRepeatMode(loopRepeatMode());
+    seekTrackTo(positionMs);
+    this.exoPlayer.prepare();
+    Log.d("RNSoundPlayer", "Restored released player at " + positionMs + "ms");
+  }
+
+  private final Runnable foregroundBufferReporter = new Runnable() {
+    @Override
+    public void run() {
+      reportForegroundBuffer();
+      if (exoPlayer != null) {
+        playerHandler.postDelayed(this, FOREGROUND_REPORT_INTERVAL_MS);
       }
-      
-      Log.d("StreamingDataSource", "Decrypted HEX:   " + hex.toString());
-      Log.d("StreamingDataSource", "Decrypted ASCII: " + ascii.toString());
     }
-    
-    private byte[] hexToByteArray(String hex) {
-      int len = hex.length();
-      byte[] data = new byte[len / 2];
-      for (int i = 0; i < len; i += 2) {
-        data[i / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4)
-                             + Character.digit(hex.charAt(i+1), 16));
-      }
-      return data;
+  };
+
+  // Lets the load scheduler hold back background loaders while the playing track's buffer is low
+  private void reportForegroundBuffer() {
+    if (this.exoPlayer == null) {
+      loadScheduler.updateForeground(false, 0);
+      return;
     }
+    int state = this.exoPlayer.getPlaybackState();
+    boolean active = this.exoPlayer.getPlayWhenReady()
+            && (state == Player.STATE_READY || state == Player.STATE_BUFFERING);
+    loadScheduler.updateForeground(active, this.exoPlayer.getTotalBufferedDuration());
+  }
 
-    // Factory class for creating StreamingDataSource instances
-    public static class Factory implements DataSource.Factory {
-      private final String url;
-      private final ReactApplicationContext reactContext;
-      private final String dekHex;
-      private final String counterBaseHex;
+  private void sendMountFileSuccessEvents(String name, String type) {
+    WritableMap params = Arguments.createMap();
+    params.putBoolean("success", true);
+    sendEvent(reactContext, EVENT_FINISHED_LOADING, params);
 
-      public Factory(String url, ReactApplicationContext reactContext) {
-        this.url = url;
-        this.reactContext = reactContext;
-        this.dekHex = null;
-        this.counterBaseHex = null;
-      }
-      
-      public Factory(String url, ReactApplicationContext reactContext, String dekHex, String counterBaseHex) {
-        this.url = url;
-        this.reactContext = reactContext;
-        this.dekHex = dekHex;
-        this.counterBaseHex = counterBaseHex;
-      }
+    WritableMap onFinishedLoadingFileParams = Arguments.createMap();
+    onFinishedLoadingFileParams.putBoolean("success", true);
+    onFinishedLoadingFileParams.putString("name", name);
+    onFinishedLoadingFileParams.putString("type", type);
+    sendEvent(reactContext, EVENT_FINISHED_LOADING_FILE, onFinishedLoadingFileParams);
+  }
 
-      @Override
-      public DataSource createDataSource() {
-        if (dekHex != null && counterBaseHex != null) {
-          return new StreamingDataSource(url, reactContext, dekHex, counterBaseHex);
-        }
-        return new StreamingDataSource(url, reactContext);
-      }
-    }
+  private void sendErrorEvent(IOException e) {
+    WritableMap errorParams = Arguments.createMap();
+    errorParams.putString("error", e.getMessage());
+    sendEvent(reactContext, EVENT_SETUP_ERROR, errorParams);
   }
 }
@@ -0,0 +1,239 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.Player;
+
+// Starts sounds at a precise time on the elapsedRealtime clock, independent of the JS thread
+//
+// Every scheduled sound gets its own ExoPlayer on a dedicated urgent-audio priority thread and
+// is fully prepared before its start time, so starting it is only play(). The thread sleeps
+// until shortly before the start time and spins for the rest, so play() is called within a
+// fraction of a millisecond of the target rather than the tens of milliseconds JS timers jitter
+// by under load. play() only hands the start to ExoPlayer's playback thread, and the audio
+// track starts some milliseconds later (a varying amount, depending on the device). The start
+// times reported back are therefore measured afterwards: once a sound's playback position has
+// moved, which ExoPlayer derives from the audio track's timestamps, its start is the current
+// time minus that position. They are accurate to a few milliseconds. Scheduled players are
+// independent of the module's main player and are released when they finish.
+class SoundScheduler {
+  // Sleeping is only accurate to a few milliseconds, the last stretch is spent spinning
+  private static final long SPIN_LEAD_MS = 3;
+  // How often and how long the audio start is looked for after play()
+  private static final long MEASURE_INTERVAL_MS = 5;
+  private static final long MEASURE_TIMEOUT_NS = 500 * 1000000L;
+
+  interface Callback {
+    // Times the audio of each sound started on the elapsedRealtime clock, in the order the sounds
+    // were given. A sound whose start couldn't be measured reports the time play() was called.
+    void onStarted(long[] startTimesNs);
+    void onError(String message);
+  }
+
+  private final Context context;
+  private final Handler handler;
+  // Only touched on the scheduler thread
+  private final List<ExoPlayer> players = new ArrayList<>();
+  private final List<Batch> pendingBatches = new ArrayList<>();
+
+  SoundScheduler(Context context) {
+    this.context = context;
+    HandlerThread thread = new HandlerThread("RNSoundPlayer-scheduler", Process.THREAD_PRIORITY_URGENT_AUDIO);
+    thread.start();
+    this.handler = new Handler(thread.getLooper());
+  }
+
+  static long now() {
+    return SystemClock.elapsedRealtimeNanos();
+  }
+
+  // Runs `action` on the scheduler thread as close to `targetNs` as possible. The last few
+  // milliseconds are spent spinning, which would block any other thread's work.
+  void runAt(final long targetNs, final Runnable action) {
+    Runnable spin = new Runnable() {
+      @Override
+      public void run() {
+        while (now() < targetNs) {
+          // Spin for the last few milliseconds
+        }
+        action.run();
+      }
+    };
+    long delayMs = (targetNs - now()) / 1000000 - SPIN_LEAD_MS;
+    if (delayMs > 0) {
+      handler.postDelayed(spin, delayMs);
+    } else {
+      handler.post(spin);
+    }
+  }
+
+  void schedule(final List<Uri> uris, final long startTimeNs, final float volume, final Callback callback) {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        new Batch(uris, startTimeNs, volume, callback).prepare();
+      }
+    });
+  }
+
+  // Stops everything and ends the scheduler thread once it has done so
+  void release() {
+    stopAll();
+    handler.getLooper().quitSafely();
+  }
+
+  void stopAll() {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        for (Batch batch : new ArrayList<>(pendingBatches)) {
+          batch.cancel("Scheduled sounds were stopped");
+        }
+        for (ExoPlayer player : players) {
+          player.release();
+        }
+        players.clear();
+      }
+    });
+  }
+
+  // Sounds scheduled together, started back to back once all of them are ready
+  private class Batch {
+    private final List<Uri> uris;
+    private final long startTimeNs;
+    private final float volume;
+    private final Callback callback;
+    private final List<ExoPlayer> batchPlayers = new ArrayList<>();
+    private final Set<ExoPlayer> readyPlayers = new HashSet<>();
+    private boolean armed = false;
+    private boolean cancelled = false;
+
+    Batch(List<Uri> uris, long startTimeNs, float volume, Callback callback) {
+      this.uris = uris;
+      this.startTimeNs = startTimeNs;
+      this.volume = volume;
+      this.callback = callback;
+    }
+
+    void prepare() {
+      pendingBatches.add(this);
+      for (Uri uri : uris) {
+        final ExoPlayer player = new ExoPlayer.Builder(context)
+                .setLooper(handler.getLooper())
+                .build();
+        player.setVolume(volume);
+        player.addListener(new Player.Listener() {
+          @Override
+          public void onPlaybackStateChanged(int playbackState) {
+            if (playbackState == Player.STATE_READY && !armed) {
+              readyPlayers.add(player);
+              if (readyPlayers.size() == batchPlayers.size()) {
+                arm();
+              }
+            } else if (playbackState == Player.STATE_ENDED) {
+              players.remove(player);
+              player.release();
+            }
+          }
+
+          @Override
+          public void onPlayerError(PlaybackException error) {
+            if (pendingBatches.contains(Batch.this)) {
+              cancel("Scheduled sound failed: " + error.getMessage());
+            } else {
+              players.remove(player);
+              player.release();
+            }
+          }
+        });
+        player.setMediaItem(MediaItem.fromUri(uri));
+        player.prepare();
+        batchPlayers.add(player);
+        players.add(player);
+      }
+    }
+
+    private void arm() {
+      armed = true;
+      if (now() > startTimeNs) {
+        Log.w("SoundScheduler", "Sounds were ready " + (now() - startTimeNs) / 1000000 + "ms after their start time");
+      }
+      runAt(startTimeNs, new Runnable() {
+        @Override
+        public void run() {
+          start();
+        }
+      });
+    }
+
+    private void start() {
+      if (cancelled) {
+        return;
+      }
+      pendingBatches.remove(this);
+      long playNs = now();
+      for (ExoPlayer player : batchPlayers) {
+        player.play();
+      }
+      measureStarts(playNs, new long[batchPlayers.size()]);
+    }
+
+    // Polls until every sound's position has moved and backdates its start by that position
+    private void measureStarts(final long playNs, final long[] startTimesNs) {
+      boolean pending = false;
+      for (int i = 0; i < batchPlayers.size(); i++) {
+        if (startTimesNs[i] != 0) {
+          continue;
+        }
+        ExoPlayer player = batchPlayers.get(i);
+        long positionMs = players.contains(player) ? player.getCurrentPosition() : 0;
+        if (positionMs > 0) {
+          startTimesNs[i] = now() - positionMs * 1000000;
+        } else if (!players.contains(player) || now() - playNs > MEASURE_TIMEOUT_NS) {
+          // Released (stopped, failed or already over) or never started
+          startTimesNs[i] = playNs;
+        } else {
+          pending = true;
+        }
+      }
+      if (!pending) {
+        callback.onStarted(startTimesNs);
+        return;
+      }
+      handler.postDelayed(new Runnable() {
+        @Override
+        public void run() {
+          measureStarts(playNs, startTimesNs);
+        }
+      }, MEASURE_INTERVAL_MS);
+    }
+
+    // Releases every sound of the batch before it has started
+    void cancel(String message) {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      pendingBatches.remove(this);
+      for (ExoPlayer player : batchPlayers) {
+        players.remove(player);
+        player.release();
+      }
+      callback.onError(message);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.annotation.TargetApi;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Plays named regions of one decoded sprite file, several at a time, through one audio track
+//
+// The sprite is decoded once into a PcmBuffer that every region reads from, so playing a
+// region is only adding a voice to the mixer: no lookup, prepare or decode. A mixer thread sums
+// the active voices into small blocks and writes them to a streaming AudioTrack. When nothing
+// has played for IDLE_PAUSE_MS the track is paused and the thread waits for the next voice.
+@TargetApi(Build.VERSION_CODES.M)
+class SpriteMixer {
+  // Frames mixed per block, small blocks keep the start latency low
+  private static final int BLOCK_FRAMES = 256;
+  // Voices beyond this replace the oldest playing one
+  static final int MAX_VOICES = 8;
+  private static final long IDLE_PAUSE_MS = 3000;
+
+  private static class Voice {
+    final int end;
+    final float volume;
+    int position;
+
+    Voice(int start, int end, float volume) {
+      this.position = start;
+      this.end = end;
+      this.volume = volume;
+    }
+  }
+
+  private final PcmBuffer pcm;
+  // Region name to {first sample, end sample}, interleaved sample indices on frame boundaries
+  private final Map<String, int[]> regions = new HashMap<>();
+  private final AudioTrack track;
+  private final Thread mixerThread;
+  // Guarded by `voices`
+  private final List<Voice> voices = new ArrayList<>();
+  private boolean released = false;
+
+  SpriteMixer(PcmBuffer pcm) throws IOException {
+    this.pcm = pcm;
+    if (pcm.getFrameCount() == 0) {
+      throw new IOException("Sprite has no audio");
+    }
+    int channelMask = pcm.getChannelCount() == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+    int minBufferSize = AudioTrack.getMinBufferSize(pcm.getSampleRate(), channelMask, AudioFormat.ENCODING_PCM_16BIT);
+    try {
+      AudioTrack.Builder builder = new AudioTrack.Builder()
+              .setAudioAttributes(new AudioAttributes.Builder()
+                      .setUsage(AudioAttributes.USAGE_ASSISTANCE_SONIFICATION)
+                      .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                      .build())
+              .setAudioFormat(new AudioFormat.Builder()
+                      .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                      .setSampleRate(pcm.getSampleRate())
+                      .setChannelMask(channelMask)
+                      .build())
+              .setTransferMode(AudioTrack.MODE_STREAM)
+              .setBufferSizeInBytes(Math.max(minBufferSize, BLOCK_FRAMES * pcm.getChannelCount() * 2 * 2));
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+        builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+      }
+      this.track = builder.build();
+    } catch (IllegalArgumentException | UnsupportedOperationException e) {
+      throw new IOException("Could not create audio track: " + e.getMessage(), e);
+    }
+
+    this.mixerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        mix();
+      }
+    }, "RNSoundPlayer-sprites");
+    this.mixerThread.setDaemon(true);
+    this.mixerThread.start();
+  }
+
+  // Adds a region, `startMs` and `durationMs` are clamped to the sprite
+  void addRegion(String name, double startMs, double durationMs) {
+    int channels = pcm.getChannelCount();
+    long frames = pcm.getFrameCount();
+    long startFrame = Math.max(0, Math.min(frames, (long) (startMs * pcm.getSampleRate() / 1000)));
+    long endFrame = Math.max(startFrame, Math.min(frames, (long) ((startMs + durationMs) * pcm.getSampleRate() / 1000)));
+    regions.put(name, new int[] { (int) (startFrame * channels), (int) (endFrame * channels) });
+  }
+
+  long getDurationMs() {
+    return pcm.getDurationMs();
+  }
+
+  void play(String name, float volume) throws IOException {
+    int[] region = regions.get(name);
+    if (region == null) {
+      throw new IOException("Unknown sprite region: " + name);
+    }
+    synchronized (voices) {
+      if (released) {
+        return;
+      }
+      if (voices.size() >= MAX_VOICES) {
+        voices.remove(0);
+      }
+      voices.add(new Voice(region[0], region[1], volume));
+      voices.notifyAll();
+    }
+  }
+
+  void stopAll() {
+    synchronized (voices) {
+      voices.clear();
+    }
+  }
+
+  void release() {
+    synchronized (voices) {
+      released = true;
+      voices.clear();
+      voices.notifyAll();
+    }
+  }
+
+  private void mix() {
+    int channels = pcm.getChannelCount();
+    short[] samples = pcm.getSamples();
+    int[] accumulator = new int[BLOCK_FRAMES * channels];
+    short[] block = new short[BLOCK_FRAMES * channels];
+    boolean playing = false;
+
+    try {
+      while (true) {
+        int length = 0;
+        synchronized (voices) {
+          if (voices.isEmpty() && !released && playing) {
+            // Let the tail of the last block play out before pausing
+            voices.wait(IDLE_PAUSE_MS);
+            if (voices.isEmpty() && !released) {
+              track.pause();
+              playing = false;
+            }
+          }
+          while (voices.isEmpty() && !released) {
+            voices.wait();
+          }
+          if (released) {
+            break;
+          }
+
+          Arrays.fill(accumulator, 0);
+          for (int i = voices.size() - 1; i >= 0; i--) {
+            Voice voice = voices.get(i);
+            int count = Math.min(accumulator.length, voice.end - voice.position);
+            for (int j = 0; j < count; j++) {
+              accumulator[j] += (int) (samples[voice.position + j] * voice.volume);
+            }
+            voice.position += count;
+            length = Math.max(length, count);
+            if (voice.position >= voice.end) {
+              voices.remove(i);
+            }
+          }
+        }
+
+        for (int i = 0; i < length; i++) {
+          block[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, accumulator[i]));
+        }
+        if (!playing) {
+          track.play();
+          playing = true;
+        }
+        // Blocks until the track has room, which paces the mixer to the output
+        track.write(block, 0, length);
+      }
+    } catch (InterruptedException e) {
+      Log.w("SpriteMixer", "Mixer interrupted");
+    } catch (IllegalStateException e) {
+      Log.e("SpriteMixer", "Mixer stopped: " + e.getMessage());
+    } finally {
+      track.release();
+    }
+  }
+}
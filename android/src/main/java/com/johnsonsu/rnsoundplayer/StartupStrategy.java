@@ -0,0 +1,60 @@
+package com.johnsonsu.rnsoundplayer;
+
+import javax.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+
+// How a streamed track starts, chosen from the bandwidth history of its host on this network
+//
+// The more the usual throughput exceeds the track's bitrate, the less has to be buffered before
+// playback starts: a consistently fast network starts almost instantly, a network that barely
+// keeps up buffers several seconds first so it doesn't stall right after starting. Without any
+// history the player's defaults apply. Fast start always starts at FAST_START_BUFFER_MS, trading
+// the risk of an early stall for the shortest time to first audio.
+class StartupStrategy {
+  // Assumed for tracks whose bitrate isn't known up front
+  private static final int ASSUMED_TRACK_BITRATE = 128000;
+  // Samples and time to first byte that make a network "consistently fast"
+  private static final int CONSISTENT_SAMPLES = 3;
+  private static final double FAST_TIME_TO_FIRST_BYTE_MS = 500;
+  // ExoPlayer's default for how much is loaded between checks whether to continue loading
+  static final int DEFAULT_CONTINUE_LOADING_CHECK_INTERVAL_BYTES = 1024 * 1024;
+  private static final int MIN_CONTINUE_LOADING_CHECK_INTERVAL_BYTES = 64 * 1024;
+  static final long FAST_START_BUFFER_MS = 250;
+
+  static final StartupStrategy DEFAULT = new StartupStrategy(C.TIME_UNSET, DEFAULT_CONTINUE_LOADING_CHECK_INTERVAL_BYTES);
+
+  // Buffered duration playback starts at, C.TIME_UNSET for the load control's default
+  final long startBufferMs;
+  // Bytes loaded between load control checks, about a second's worth so buffer ceilings and
+  // suspension take effect promptly on slow networks
+  final int continueLoadingCheckIntervalBytes;
+
+  private StartupStrategy(long startBufferMs, int continueLoadingCheckIntervalBytes) {
+    this.startBufferMs = startBufferMs;
+    this.continueLoadingCheckIntervalBytes = continueLoadingCheckIntervalBytes;
+  }
+
+  static StartupStrategy from(@Nullable BandwidthHistory.Entry history, int trackBitrate, boolean fastStart) {
+    if (history == null || history.samples == 0) {
+      return fastStart
+              ? new StartupStrategy(FAST_START_BUFFER_MS, DEFAULT_CONTINUE_LOADING_CHECK_INTERVAL_BYTES)
+              : DEFAULT;
+    }
+    double headroom = history.bitrate / (trackBitrate > 0 ? trackBitrate : ASSUMED_TRACK_BITRATE);
+    long startBufferMs;
+    if (headroom >= 4 && history.samples >= CONSISTENT_SAMPLES
+            && history.timeToFirstByteMs <= FAST_TIME_TO_FIRST_BYTE_MS) {
+      startBufferMs = 500;
+    } else if (headroom >= 2) {
+      startBufferMs = 1500;
+    } else if (headroom >= 1.2) {
+      startBufferMs = 3000;
+    } else {
+      startBufferMs = 6000;
+    }
+    int intervalBytes = (int) Math.max(MIN_CONTINUE_LOADING_CHECK_INTERVAL_BYTES,
+            Math.min(DEFAULT_CONTINUE_LOADING_CHECK_INTERVAL_BYTES, history.bitrate / 8));
+    return new StartupStrategy(fastStart ? FAST_START_BUFFER_MS : startBufferMs, intervalBytes);
+  }
+}
@@ -0,0 +1,20 @@
+package com.johnsonsu.rnsoundplayer;
+
+// The clock the load schedulers read and sleep on, swapped for a fake one in tests
+interface TimeSource {
+  TimeSource SYSTEM = new TimeSource() {
+    @Override
+    public long currentTimeMillis() {
+      return System.currentTimeMillis();
+    }
+
+    @Override
+    public void sleep(long ms) throws InterruptedException {
+      Thread.sleep(ms);
+    }
+  };
+
+  long currentTimeMillis();
+
+  void sleep(long ms) throws InterruptedException;
+}
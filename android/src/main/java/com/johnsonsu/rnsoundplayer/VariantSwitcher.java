@@ -0,0 +1,184 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.extractor.DefaultExtractorsFactory;
+import com.google.android.exoplayer2.source.ClippingMediaSource;
+import com.google.android.exoplayer2.source.ConcatenatingMediaSource;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.source.ProgressiveMediaSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.util.Util;
+
+// Plays a progressive track that exists at several bitrates, switching variant with the bandwidth
+//
+// The track is cut into segments of SEGMENT_MS, each one a clip of some variant and a window of
+// a mutable playlist. The module asks switchTo() every CHECK_INTERVAL_MS while playing, with the
+// position the player has buffered up to. When another variant fits, the segments after the one
+// holding that position are replaced by clips of the new variant. Everything already buffered
+// stays and keeps playing, the new variant is heard from the next segment boundary on. The
+// playlist is atomic, so the player repeats it as a whole, and the module maps its windows back
+// to track positions with toTrackPositionMs() and segmentAt().
+//
+// Segment boundaries cost a new request and an extractor seek each (constant bitrate seeking for
+// streams without a seek table), which is what SEGMENT_MS trades against how soon a switch can
+// take effect. A track without a known duration can't be cut and plays one variant throughout.
+// Variants must be the same audio with the same duration, only the bitrate may differ.
+class VariantSwitcher {
+  static final long SEGMENT_MS = 20000;
+  static final long CHECK_INTERVAL_MS = 2000;
+  // Share of the estimated bandwidth a variant may use, the margin covers estimate swings
+  private static final float BANDWIDTH_FRACTION = 0.7f;
+
+  static class Variant {
+    final String url;
+    final int bitrate;
+    @Nullable final String dekHex;
+    @Nullable final String counterBaseHex;
+
+    Variant(String url, int bitrate, @Nullable String dekHex, @Nullable String counterBaseHex) {
+      this.url = url;
+      this.bitrate = bitrate;
+      this.dekHex = dekHex;
+      this.counterBaseHex = counterBaseHex;
+    }
+  }
+
+  interface FactoryProvider {
+    DataSource.Factory create(Variant variant);
+  }
+
+  // Ascending bitrate
+  private final List<Variant> variants;
+  private final List<DataSource.Factory> factories = new ArrayList<>();
+  private int continueLoadingCheckIntervalBytes = StartupStrategy.DEFAULT_CONTINUE_LOADING_CHECK_INTERVAL_BYTES;
+  // The variant of every segment. Only touched on the player's looper after prepare.
+  private final List<Variant> segmentVariants = new ArrayList<>();
+  // Built on first use, so the switching logic works without a player
+  @Nullable private ConcatenatingMediaSource playlist;
+
+  VariantSwitcher(List<Variant> variants, FactoryProvider factoryProvider, long durationMs, long initialBitrateEstimate) {
+    this.variants = new ArrayList<>(variants);
+    Collections.sort(this.variants, new Comparator<Variant>() {
+      @Override
+      public int compare(Variant a, Variant b) {
+        return Integer.compare(a.bitrate, b.bitrate);
+      }
+    });
+    for (Variant variant : this.variants) {
+      factories.add(factoryProvider.create(variant));
+    }
+    Variant initial = selectVariant(initialBitrateEstimate);
+    int segmentCount = durationMs > 0 ? (int) ((durationMs + SEGMENT_MS - 1) / SEGMENT_MS) : 1;
+    for (int i = 0; i < segmentCount; i++) {
+      segmentVariants.add(initial);
+    }
+  }
+
+  void setContinueLoadingCheckIntervalBytes(int continueLoadingCheckIntervalBytes) {
+    this.continueLoadingCheckIntervalBytes = continueLoadingCheckIntervalBytes;
+  }
+
+  // The highest bitrate that fits `bitrateEstimate`
+  private Variant selectVariant(long bitrateEstimate) {
+    for (int i = variants.size() - 1; i > 0; i--) {
+      if (variants.get(i).bitrate <= bitrateEstimate * BANDWIDTH_FRACTION) {
+        return variants.get(i);
+      }
+    }
+    return variants.get(0);
+  }
+
+  int getSegmentCount() {
+    return segmentVariants.size();
+  }
+
+  // Index of the segment (and playlist window) that holds `positionMs` of the track
+  int segmentAt(long positionMs) {
+    int segment = (int) (Math.max(0, positionMs) / SEGMENT_MS);
+    return Math.min(segment, segmentVariants.size() - 1);
+  }
+
+  long getSegmentStartMs(int segment) {
+    return segment * SEGMENT_MS;
+  }
+
+  // Track position of `positionMs` into playlist window `windowIndex`
+  long toTrackPositionMs(int windowIndex, long positionMs) {
+    return getSegmentStartMs(windowIndex) + positionMs;
+  }
+
+  Variant getVariantAt(long positionMs) {
+    return segmentVariants.get(segmentAt(positionMs));
+  }
+
+  // Switches the segments after the one holding `bufferedPositionMs` to the variant that fits
+  // `bitrateEstimate`. Returns that variant, or null when they are on it already or when no
+  // segment is left that the player hasn't started loading.
+  @Nullable
+  Variant switchTo(long bufferedPositionMs, long bitrateEstimate) {
+    Variant variant = selectVariant(bitrateEstimate);
+    // The segment holding the buffered position is loading already and plays out as it is
+    int first = segmentAt(bufferedPositionMs) + 1;
+    boolean changed = false;
+    for (int i = first; i < segmentVariants.size(); i++) {
+      changed |= segmentVariants.get(i) != variant;
+      segmentVariants.set(i, variant);
+    }
+    if (!changed) {
+      return null;
+    }
+    if (playlist != null) {
+      playlist.removeMediaSourceRange(first, segmentVariants.size());
+      List<MediaSource> sources = new ArrayList<>();
+      for (int i = first; i < segmentVariants.size(); i++) {
+        sources.add(createSegmentSource(i));
+      }
+      playlist.addMediaSources(sources);
+    }
+    Log.d("VariantSwitcher", String.format("Switching to %d bps variant at %dms (estimate %d bps): %s",
+            variant.bitrate, getSegmentStartMs(first), bitrateEstimate, variant.url));
+    return variant;
+  }
+
+  MediaSource getMediaSource() {
+    if (playlist == null) {
+      playlist = new ConcatenatingMediaSource(/* isAtomic= */ true);
+      for (int i = 0; i < segmentVariants.size(); i++) {
+        playlist.addMediaSource(createSegmentSource(i));
+      }
+    }
+    return playlist;
+  }
+
+  // A clip from the start of the segment to the next one. The last clip runs to the end of the
+  // source, so a `durationMs` that is slightly off still plays everything.
+  private MediaSource createSegmentSource(int segment) {
+    Variant variant = segmentVariants.get(segment);
+    DataSource.Factory factory = factories.get(variants.indexOf(variant));
+    if (segmentVariants.size() == 1) {
+      return new ProgressiveMediaSource.Factory(factory)
+              .setContinueLoadingCheckIntervalBytes(continueLoadingCheckIntervalBytes)
+              .setLoadErrorHandlingPolicy(StreamingDataSource.LOAD_ERROR_HANDLING_POLICY)
+              .createMediaSource(MediaItem.fromUri(variant.url));
+    }
+    // Clips start mid-track, so streams without a seek table need constant bitrate seeking
+    MediaSource source = new ProgressiveMediaSource.Factory(factory,
+            new DefaultExtractorsFactory().setConstantBitrateSeekingEnabled(true))
+            .setContinueLoadingCheckIntervalBytes(continueLoadingCheckIntervalBytes)
+            .setLoadErrorHandlingPolicy(StreamingDataSource.LOAD_ERROR_HANDLING_POLICY)
+            .createMediaSource(MediaItem.fromUri(variant.url));
+    boolean last = segment == segmentVariants.size() - 1;
+    long startMs = getSegmentStartMs(segment);
+    return new ClippingMediaSource(source, Util.msToUs(startMs),
+            last ? C.TIME_END_OF_SOURCE : Util.msToUs(startMs + SEGMENT_MS));
+  }
+}
@@ -0,0 +1,70 @@
+package com.johnsonsu.rnsoundplayer;
+
+import java.util.Arrays;
+
+// Reduces decoded PCM to a fixed number of peak buckets for drawing a static waveform
+//
+// The track length isn't reliably known up front (streams without Content-Length, VBR files
+// without a seek table), so peaks are first collected at a fixed resolution and only grouped
+// into the requested number of buckets once decoding has finished.
+class WaveformBuilder implements PcmDecoder.Sink {
+  private static final int WINDOWS_PER_SECOND = 100;
+
+  private int channelCount = 1;
+  private int samplesPerWindow = 0;
+  private int samplesInWindow = 0;
+  private float windowPeak = 0;
+
+  private float[] peaks = new float[1024];
+  private int peakCount = 0;
+
+  @Override
+  public void onFormat(int sampleRate, int channelCount) {
+    this.channelCount = Math.max(1, channelCount);
+    this.samplesPerWindow = Math.max(1, sampleRate / WINDOWS_PER_SECOND) * this.channelCount;
+  }
+
+  @Override
+  public void onSamples(short[] samples, int count) {
+    for (int i = 0; i < count; i++) {
+      float magnitude = Math.abs(samples[i] / 32768f);
+      if (magnitude > windowPeak) {
+        windowPeak = magnitude;
+      }
+      if (++samplesInWindow == samplesPerWindow) {
+        addPeak();
+      }
+    }
+  }
+
+  // Returns `buckets` peak values between 0 and 1
+  float[] getPeaks(int buckets) {
+    if (samplesInWindow > 0) {
+      addPeak();
+    }
+
+    float[] result = new float[buckets];
+    if (peakCount == 0) {
+      return result;
+    }
+    for (int bucket = 0; bucket < buckets; bucket++) {
+      int start = (int) ((long) bucket * peakCount / buckets);
+      int end = Math.max(start + 1, (int) ((long) (bucket + 1) * peakCount / buckets));
+      float peak = 0;
+      for (int i = start; i < end && i < peakCount; i++) {
+        peak = Math.max(peak, peaks[i]);
+      }
+      result[bucket] = Math.min(1f, peak);
+    }
+    return result;
+  }
+
+  private void addPeak() {
+    if (peakCount == peaks.length) {
+      peaks = Arrays.copyOf(peaks, peaks.length * 2);
+    }
+    peaks[peakCount++] = windowPeak;
+    windowPeak = 0;
+    samplesInWindow = 0;
+  }
+}
@@ -0,0 +1,26 @@
+package com.johnsonsu.rnsoundplayer;
+
+// A clock that only moves when told to. Sleeping advances it instead of blocking.
+class FakeTimeSource implements TimeSource {
+  private long nowMs = 0;
+  private long sleptMs = 0;
+
+  @Override
+  public synchronized long currentTimeMillis() {
+    return nowMs;
+  }
+
+  @Override
+  public synchronized void sleep(long ms) {
+    nowMs += ms;
+    sleptMs += ms;
+  }
+
+  synchronized void advance(long ms) {
+    nowMs += ms;
+  }
+
+  synchronized long getSleptMs() {
+    return sleptMs;
+  }
+}
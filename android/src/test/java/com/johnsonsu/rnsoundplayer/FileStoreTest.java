@@ -0,0 +1,74 @@
+package com.johnsonsu.rnsoundplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileStoreTest {
+  private File directory;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("store").toFile();
+    file = new File(directory, "index.json");
+  }
+
+  @After
+  public void tearDown() {
+    OfflineDownloadManagerTest.deleteRecursively(directory);
+  }
+
+  @Test
+  public void missingFileReadsAsNull() throws IOException, JSONException {
+    assertNull(FileStore.readJsonArray(file));
+  }
+
+  @Test
+  public void writeReplacesTheFileAndLeavesNoTempFile() throws IOException, JSONException {
+    FileStore.writeJsonArray(file, new JSONArray().put("first"));
+    FileStore.writeJsonArray(file, new JSONArray().put("second").put(2));
+
+    JSONArray read = FileStore.readJsonArray(file);
+    assertEquals(2, read.length());
+    assertEquals("second", read.getString(0));
+    assertEquals(2, read.getInt(1));
+    assertFalse(new File(file.getPath() + ".tmp").exists());
+  }
+
+  @Test
+  public void failedReplaceThrowsAndRemovesTheTempFile() throws IOException, JSONException {
+    // A non-empty directory can be neither replaced nor deleted
+    assertTrue(file.mkdir());
+    assertTrue(new File(file, "child").createNewFile());
+    try {
+      FileStore.writeJsonArray(file, new JSONArray().put("lost"));
+      fail("The write was reported as done");
+    } catch (IOException e) {
+      // Expected
+    }
+    assertTrue(file.isDirectory());
+    assertFalse(new File(file.getPath() + ".tmp").exists());
+  }
+
+  @Test
+  public void hashedNamesAreStableAndDistinct() {
+    String name = FileStore.hashedName("https://example.com/a.mp3", ".bin");
+    assertEquals(40 + 4, name.length());
+    assertTrue(name.endsWith(".bin"));
+    assertEquals(name, FileStore.hashedName("https://example.com/a.mp3", ".bin"));
+    assertFalse(name.equals(FileStore.hashedName("https://example.com/b.mp3", ".bin")));
+  }
+}
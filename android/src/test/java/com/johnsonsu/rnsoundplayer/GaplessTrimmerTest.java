@@ -0,0 +1,91 @@
+package com.johnsonsu.rnsoundplayer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class GaplessTrimmerTest {
+  private static final int CHANNELS = 2;
+  private static final int FRAMES = 1000;
+
+  // Collects everything passed on, like PcmBuffer
+  private static class CollectingSink implements PcmDecoder.Sink {
+    int sampleRate;
+    int channelCount;
+    short[] samples = new short[0];
+
+    @Override
+    public void onFormat(int sampleRate, int channelCount) {
+      this.sampleRate = sampleRate;
+      this.channelCount = channelCount;
+    }
+
+    @Override
+    public void onSamples(short[] decoded, int count) {
+      int length = samples.length;
+      samples = Arrays.copyOf(samples, length + count);
+      System.arraycopy(decoded, 0, samples, length, count);
+    }
+  }
+
+  // Interleaved stereo where every sample is its own index
+  private static short[] ramp() {
+    short[] samples = new short[FRAMES * CHANNELS];
+    for (int i = 0; i < samples.length; i++) {
+      samples[i] = (short) i;
+    }
+    return samples;
+  }
+
+  // Feeds `samples` in slices of `sliceFrames`, from a reused buffer like the decoder does
+  private static CollectingSink decode(int delayFrames, int paddingFrames, int sliceFrames) throws IOException {
+    CollectingSink sink = new CollectingSink();
+    GaplessTrimmer trimmer = new GaplessTrimmer(sink, delayFrames, paddingFrames);
+    trimmer.onFormat(44100, CHANNELS);
+    short[] samples = ramp();
+    short[] slice = new short[sliceFrames * CHANNELS];
+    for (int offset = 0; offset < samples.length; offset += slice.length) {
+      int count = Math.min(slice.length, samples.length - offset);
+      System.arraycopy(samples, offset, slice, 0, count);
+      trimmer.onSamples(slice, count);
+      Arrays.fill(slice, (short) -1);
+    }
+    return sink;
+  }
+
+  private static short[] expected(int delayFrames, int paddingFrames) {
+    return Arrays.copyOfRange(ramp(), delayFrames * CHANNELS, (FRAMES - paddingFrames) * CHANNELS);
+  }
+
+  @Test
+  public void dropsDelayAndPadding() throws IOException {
+    CollectingSink sink = decode(100, 50, 64);
+    assertEquals(44100, sink.sampleRate);
+    assertEquals(CHANNELS, sink.channelCount);
+    assertArrayEquals(expected(100, 50), sink.samples);
+  }
+
+  @Test
+  public void slicesSmallerThanThePadding() throws IOException {
+    assertArrayEquals(expected(7, 300), decode(7, 300, 3).samples);
+  }
+
+  @Test
+  public void delayLongerThanManySlices() throws IOException {
+    assertArrayEquals(expected(529, 1), decode(529, 1, 16).samples);
+  }
+
+  @Test
+  public void oneSliceForTheWholeTrack() throws IOException {
+    assertArrayEquals(expected(576, 1000 - 576 - 10), decode(576, 1000 - 576 - 10, FRAMES).samples);
+  }
+
+  @Test
+  public void noGaplessInfoPassesEverythingThrough() throws IOException {
+    assertArrayEquals(ramp(), decode(0, 0, 100).samples);
+  }
+}
@@ -0,0 +1,55 @@
+package com.johnsonsu.rnsoundplayer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HeaderCacheTest {
+  private static final String URL = "https://example.com/track.mp3";
+
+  private File directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("headers").toFile();
+  }
+
+  @After
+  public void tearDown() {
+    OfflineDownloadManagerTest.deleteRecursively(directory);
+  }
+
+  @Test
+  public void entriesSurviveARestart() {
+    byte[] header = TestHttpServer.content(8192);
+    HeaderCache cache = new HeaderCache(directory);
+    cache.put(URL, "\"1\"", "audio/mpeg", 100000, header);
+    cache.updateMetadata(URL, 180000, 128000);
+
+    HeaderCache restored = new HeaderCache(directory);
+    HeaderCache.Entry entry = restored.get(URL);
+    assertEquals("\"1\"", entry.validator);
+    assertEquals("audio/mpeg", entry.mimeType);
+    assertEquals(100000, entry.contentLength);
+    assertEquals(180000, entry.durationMs);
+    assertEquals(128000, entry.bitrate);
+    assertArrayEquals(header, restored.readHeader(entry));
+  }
+
+  @Test
+  public void invalidatedEntryIsGoneAfterARestart() {
+    HeaderCache cache = new HeaderCache(directory);
+    cache.put(URL, "\"1\"", null, 100000, TestHttpServer.content(8192));
+    cache.invalidate(URL);
+
+    assertNull(new HeaderCache(directory).get(URL));
+  }
+}
@@ -0,0 +1,191 @@
+package com.johnsonsu.rnsoundplayer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class HeaderSnifferTest {
+  private static final int NEED_MORE_DATA = HeaderSniffer.NEED_MORE_DATA;
+  private static final int UNKNOWN_FORMAT = HeaderSniffer.UNKNOWN_FORMAT;
+  // headerLength() needs this much before it decides anything
+  private static final int MIN_SNIFF_BYTES = 12;
+  private static final int OGG_PAGE_HEADER_SIZE = 27;
+  // MPEG-1 Layer III, 128 kbit/s, 44.1 kHz, no padding: 144 * 128000 / 44100 = 417 bytes
+  private static final int MP3_FRAME_HEADER = 0xFFFB9000;
+  private static final int MP3_FRAME_SIZE = 417;
+
+  private static class Case {
+    final String name;
+    final byte[] data;
+    // What headerLength() returns once it has `needed` bytes
+    final int expected;
+    final int needed;
+
+    Case(String name, byte[] data, int expected, int needed) {
+      this.name = name;
+      this.data = data;
+      this.expected = expected;
+      this.needed = needed;
+    }
+  }
+
+  private static Case[] cases() {
+    byte[] id3 = id3(300, false);
+    byte[] id3WithFooter = id3(300, true);
+    byte[] adts = adtsFrame(371);
+    byte[] ftyp = box("ftyp", 16);
+    byte[] moov = box("moov", 500);
+    byte[] mdat = box("mdat", 2000);
+    byte[] oggHeaders = concat(oggPage(0, 30), oggPage(0, 255, 255, 20));
+    byte[] flacMetadata = concat(ascii("fLaC"), flacBlock(false, 34), flacBlock(true, 120));
+    // fmt, then a 5 byte LIST chunk with its pad byte, then the data chunk header
+    byte[] wavHeader = concat(ascii("RIFF"), intLittleEndian(100000), ascii("WAVE"),
+            ascii("fmt "), intLittleEndian(16), new byte[16],
+            ascii("LIST"), intLittleEndian(5), new byte[5 + 1],
+            ascii("data"), intLittleEndian(99000));
+
+    return new Case[] {
+      new Case("MP3 frame", concat(mp3Frame(), mp3Frame()), MP3_FRAME_SIZE, MP3_FRAME_SIZE),
+      new Case("ID3 and MP3 frame", concat(id3, mp3Frame(), mp3Frame()),
+              id3.length + MP3_FRAME_SIZE, id3.length + MP3_FRAME_SIZE),
+      new Case("ID3 with footer and MP3 frame", concat(id3WithFooter, mp3Frame()),
+              id3WithFooter.length + MP3_FRAME_SIZE, id3WithFooter.length + MP3_FRAME_SIZE),
+      new Case("ADTS", concat(adts, adtsFrame(200)), adts.length, adts.length),
+      new Case("ID3 and ADTS", concat(id3, adts), id3.length + adts.length, id3.length + adts.length),
+      new Case("MP4 with moov first", concat(ftyp, box("free", 8), moov, mdat),
+              ftyp.length + 16 + moov.length, ftyp.length + 16 + moov.length),
+      new Case("MP4 with mdat first", concat(ftyp, mdat, moov), ftyp.length + 8, ftyp.length + 8),
+      new Case("MP4 with a 64-bit mdat first", concat(ftyp, largeBox("mdat", 100), moov),
+              ftyp.length + 16, ftyp.length + 16),
+      // The first page with a granule position ends the header, its page header has to be seen
+      new Case("Ogg", concat(oggHeaders, oggPage(4096, 200), oggPage(8192, 200)),
+              oggHeaders.length, oggHeaders.length + OGG_PAGE_HEADER_SIZE),
+      new Case("FLAC", concat(flacMetadata, new byte[500]), flacMetadata.length, flacMetadata.length),
+      new Case("WAV with an odd-sized chunk", concat(wavHeader, new byte[500]), wavHeader.length, wavHeader.length),
+      new Case("Text", ascii("This is not an audio file at all"), UNKNOWN_FORMAT, MIN_SNIFF_BYTES),
+      new Case("MP4 with a corrupt box size", concat(ftyp, intBigEndian(4), ascii("moov"), new byte[100]),
+              UNKNOWN_FORMAT, ftyp.length + 8),
+      new Case("ID3 and garbage", concat(id3, ascii("garbage after the tag")), UNKNOWN_FORMAT, id3.length + 7),
+    };
+  }
+
+  // Every case is also fed truncated to each length below its full size, the way the bytes
+  // arrive from the network
+  @Test
+  public void headerLengthOfEveryPrefix() {
+    for (Case c : cases()) {
+      for (int length = 0; length <= c.data.length; length++) {
+        // Exactly sized, so reading past `length` fails
+        byte[] data = Arrays.copyOf(c.data, length);
+        int expected = length < c.needed ? NEED_MORE_DATA : c.expected;
+        assertEquals(c.name + " with " + length + " bytes", expected, HeaderSniffer.headerLength(data, length));
+      }
+    }
+  }
+
+  @Test
+  public void bytesPastLengthAreIgnored() {
+    // The data source passes its whole header buffer with the number of valid bytes
+    byte[] buffer = Arrays.copyOf(concat(box("ftyp", 16), box("moov", 500)), 64 * 1024);
+    assertEquals(NEED_MORE_DATA, HeaderSniffer.headerLength(buffer, 100));
+  }
+
+  private static byte[] mp3Frame() {
+    byte[] frame = new byte[MP3_FRAME_SIZE];
+    System.arraycopy(intBigEndian(MP3_FRAME_HEADER), 0, frame, 0, 4);
+    return frame;
+  }
+
+  private static byte[] adtsFrame(int frameLength) {
+    byte[] frame = new byte[frameLength];
+    frame[0] = (byte) 0xFF;
+    frame[1] = (byte) 0xF1;
+    frame[2] = (byte) 0x50;
+    frame[3] = (byte) (0x80 | ((frameLength >> 11) & 0x03));
+    frame[4] = (byte) (frameLength >> 3);
+    frame[5] = (byte) (((frameLength & 0x07) << 5) | 0x1F);
+    frame[6] = (byte) 0xFC;
+    return frame;
+  }
+
+  private static byte[] id3(int size, boolean footer) {
+    byte[] tag = new byte[10 + size + (footer ? 10 : 0)];
+    tag[0] = 'I';
+    tag[1] = 'D';
+    tag[2] = '3';
+    tag[3] = 4;
+    tag[5] = (byte) (footer ? 0x10 : 0);
+    tag[6] = (byte) ((size >> 21) & 0x7F);
+    tag[7] = (byte) ((size >> 14) & 0x7F);
+    tag[8] = (byte) ((size >> 7) & 0x7F);
+    tag[9] = (byte) (size & 0x7F);
+    return tag;
+  }
+
+  private static byte[] box(String type, int payloadSize) {
+    return concat(intBigEndian(8 + payloadSize), ascii(type), new byte[payloadSize]);
+  }
+
+  private static byte[] largeBox(String type, int payloadSize) {
+    return concat(intBigEndian(1), ascii(type), intBigEndian(0), intBigEndian(16 + payloadSize), new byte[payloadSize]);
+  }
+
+  private static byte[] oggPage(long granulePosition, int... lacing) {
+    ByteArrayOutputStream page = new ByteArrayOutputStream();
+    page.write('O');
+    page.write('g');
+    page.write('g');
+    page.write('S');
+    page.write(0);
+    page.write(granulePosition == 0 ? 0x02 : 0);
+    for (int i = 0; i < 8; i++) {
+      page.write((int) (granulePosition >> (8 * i)));
+    }
+    // Serial number, sequence number and checksum
+    page.write(new byte[12], 0, 12);
+    page.write(lacing.length);
+    int payloadSize = 0;
+    for (int segment : lacing) {
+      page.write(segment);
+      payloadSize += segment;
+    }
+    page.write(new byte[payloadSize], 0, payloadSize);
+    return page.toByteArray();
+  }
+
+  private static byte[] flacBlock(boolean last, int size) {
+    byte[] block = new byte[4 + size];
+    block[0] = (byte) (last ? 0x84 : 0x00);
+    block[1] = (byte) (size >> 16);
+    block[2] = (byte) (size >> 8);
+    block[3] = (byte) size;
+    return block;
+  }
+
+  private static byte[] ascii(String text) {
+    byte[] bytes = new byte[text.length()];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) text.charAt(i);
+    }
+    return bytes;
+  }
+
+  private static byte[] intBigEndian(int value) {
+    return new byte[] {(byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value};
+  }
+
+  private static byte[] intLittleEndian(int value) {
+    return new byte[] {(byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24)};
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] part : parts) {
+      out.write(part, 0, part.length);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,155 @@
+package com.johnsonsu.rnsoundplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoadSchedulerTest {
+  private static final int READ_LENGTH = 1024 * 1024;
+  // What one throttle slice allows at the default background rate
+  private static final int SLICE_BYTES = (int) (LoadScheduler.DEFAULT_BACKGROUND_BYTES_PER_SECOND / 10);
+
+  private FakeTimeSource timeSource;
+  private LoadScheduler scheduler;
+
+  @Before
+  public void setUp() {
+    timeSource = new FakeTimeSource();
+    scheduler = new LoadScheduler(timeSource);
+  }
+
+  @Test
+  public void playbackIsNeverHeldBack() throws InterruptedIOException {
+    scheduler.updateForeground(true, 0);
+    assertEquals(READ_LENGTH, scheduler.acquire(LoadScheduler.PRIORITY_PLAYBACK, READ_LENGTH));
+    assertEquals(0, timeSource.getSleptMs());
+  }
+
+  @Test
+  public void backgroundRunsFreelyWhenNothingPlays() throws InterruptedIOException {
+    scheduler.updateForeground(false, 0);
+    assertEquals(READ_LENGTH, scheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, READ_LENGTH));
+    assertEquals(0, timeSource.getSleptMs());
+  }
+
+  @Test
+  public void backgroundRunsFreelyAboveHighWatermark() throws InterruptedIOException {
+    scheduler.updateForeground(true, LoadScheduler.DEFAULT_HIGH_WATERMARK_MS);
+    assertEquals(READ_LENGTH, scheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, READ_LENGTH));
+    assertEquals(0, timeSource.getSleptMs());
+  }
+
+  @Test
+  public void backgroundIsThrottledBelowHighWatermark() throws InterruptedIOException {
+    scheduler.updateForeground(true, LoadScheduler.DEFAULT_HIGH_WATERMARK_MS - 1);
+    assertEquals(SLICE_BYTES, scheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, READ_LENGTH));
+    // The slice takes as long as the background rate allows
+    assertEquals(SLICE_BYTES * 1000L / LoadScheduler.DEFAULT_BACKGROUND_BYTES_PER_SECOND, timeSource.getSleptMs());
+  }
+
+  @Test
+  public void throttleFollowsTheConfiguredRate() throws InterruptedIOException {
+    scheduler.setOptions(1000, 4000, 10 * 1024);
+    scheduler.updateForeground(true, 2000);
+    assertEquals(1024, scheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, READ_LENGTH));
+    assertEquals(100, timeSource.getSleptMs());
+    // A read smaller than the slice is passed through whole and sleeps for its own size
+    assertEquals(512, scheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, 512));
+    assertEquals(150, timeSource.getSleptMs());
+  }
+
+  @Test
+  public void backgroundPausesBelowLowWatermarkUntilTheBufferRecovers() throws InterruptedException {
+    scheduler.updateForeground(true, LoadScheduler.DEFAULT_LOW_WATERMARK_MS - 1);
+    final AtomicInteger acquired = new AtomicInteger(-1);
+    Thread loader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          acquired.set(scheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, READ_LENGTH));
+        } catch (InterruptedIOException e) {
+          // Leaves `acquired` unset
+        }
+      }
+    });
+    loader.start();
+
+    loader.join(100);
+    assertTrue(loader.isAlive());
+
+    scheduler.updateForeground(true, LoadScheduler.DEFAULT_HIGH_WATERMARK_MS);
+    loader.join(2000);
+    assertEquals(READ_LENGTH, acquired.get());
+  }
+
+  @Test
+  public void pausedLoaderResumesWhenPlaybackStops() throws InterruptedException {
+    scheduler.updateForeground(true, 0);
+    final AtomicInteger acquired = new AtomicInteger(-1);
+    Thread loader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          acquired.set(scheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, READ_LENGTH));
+        } catch (InterruptedIOException e) {
+          // Leaves `acquired` unset
+        }
+      }
+    });
+    loader.start();
+
+    scheduler.updateForeground(false, 0);
+    loader.join(2000);
+    assertEquals(READ_LENGTH, acquired.get());
+  }
+
+  @Test
+  public void interruptingAPausedLoaderThrows() throws InterruptedException {
+    scheduler.updateForeground(true, 0);
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    Thread loader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          scheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, READ_LENGTH);
+        } catch (InterruptedIOException e) {
+          error.set(e);
+        }
+      }
+    });
+    loader.start();
+
+    loader.interrupt();
+    loader.join(2000);
+    assertTrue(error.get() instanceof InterruptedIOException);
+  }
+
+  @Test
+  public void watermarksScaleWithTheBufferCeiling() throws InterruptedIOException {
+    // Low becomes a third of the ceiling (1000ms), high nine tenths of it (2700ms)
+    scheduler.setBufferCeilingMs(3000);
+
+    scheduler.updateForeground(true, 1500);
+    assertEquals(SLICE_BYTES, scheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, READ_LENGTH));
+
+    scheduler.updateForeground(true, 2700);
+    assertEquals(READ_LENGTH, scheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, READ_LENGTH));
+
+    // Back to the configured watermarks once the ceiling is lifted
+    scheduler.setBufferCeilingMs(0);
+    assertEquals(SLICE_BYTES, scheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, READ_LENGTH));
+  }
+
+  @Test
+  public void ceilingNeverRaisesTheWatermarks() throws InterruptedIOException {
+    scheduler.setBufferCeilingMs(60000);
+    scheduler.updateForeground(true, LoadScheduler.DEFAULT_HIGH_WATERMARK_MS);
+    assertEquals(READ_LENGTH, scheduler.acquire(LoadScheduler.PRIORITY_BACKGROUND, READ_LENGTH));
+  }
+}
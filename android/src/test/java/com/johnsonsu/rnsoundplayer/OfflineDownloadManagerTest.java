@@ -0,0 +1,161 @@
+package com.johnsonsu.rnsoundplayer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OfflineDownloadManagerTest {
+  static final int CONTENT_LENGTH = 512 * 1024;
+  static final int BROKEN_AT = 100000;
+  private static final long TIMEOUT_MS = 10000;
+
+  private File directory;
+  private TestHttpServer server;
+  private OfflineDownloadManager manager;
+  private byte[] content;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("downloads").toFile();
+    content = TestHttpServer.content(CONTENT_LENGTH);
+    server = new TestHttpServer(content);
+    manager = createManager(directory);
+  }
+
+  @After
+  public void tearDown() {
+    manager.shutdown();
+    server.stop();
+    deleteRecursively(directory);
+  }
+
+  static OfflineDownloadManager createManager(File directory) {
+    return new OfflineDownloadManager(directory, new LoadScheduler(new FakeTimeSource()),
+            new OfflineDownloadManager.Listener() {
+              @Override
+              public void onProgress(OfflineDownloadManager.Download download) {
+              }
+
+              @Override
+              public void onStateChanged(OfflineDownloadManager.Download download, String error) {
+              }
+            });
+  }
+
+  static void awaitState(OfflineDownloadManager.Download download, String state) {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (!state.equals(download.state)) {
+      assertTrue("Still " + download.state + " instead of " + state, System.currentTimeMillis() < deadline);
+      sleep(10);
+    }
+  }
+
+  // Downloads the first BROKEN_AT bytes of `server`'s content, then the connection breaks
+  static OfflineDownloadManager.Download downloadPartially(OfflineDownloadManager manager, TestHttpServer server) {
+    server.setFailAfterBytes(BROKEN_AT);
+    OfflineDownloadManager.Download download = manager.start(server.getUrl());
+    awaitState(download, OfflineDownloadManager.STATE_FAILED);
+    server.setFailAfterBytes(-1);
+    assertEquals(BROKEN_AT, download.downloadedBytes);
+    assertEquals(BROKEN_AT, download.file.length());
+    return download;
+  }
+
+  @Test
+  public void brokenDownloadResumesWithRangeAndIfRange() throws IOException {
+    OfflineDownloadManager.Download download = downloadPartially(manager, server);
+
+    manager.resume(server.getUrl());
+    awaitState(download, OfflineDownloadManager.STATE_COMPLETED);
+    assertEquals(CONTENT_LENGTH, download.totalBytes);
+    assertArrayEquals(content, Files.readAllBytes(download.file.toPath()));
+
+    List<TestHttpServer.Request> requests = server.getRequests();
+    assertEquals(2, requests.size());
+    assertNull(requests.get(0).range);
+    assertEquals("bytes=" + BROKEN_AT + "-", requests.get(1).range);
+    assertEquals("\"1\"", requests.get(1).ifRange);
+  }
+
+  @Test
+  public void pausedDownloadResumesWhereItStopped() throws IOException {
+    server.setBytesPerSecond(256 * 1024);
+    OfflineDownloadManager.Download download = manager.start(server.getUrl());
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (download.downloadedBytes < 64 * 1024) {
+      assertTrue(System.currentTimeMillis() < deadline);
+      sleep(10);
+    }
+    manager.pause(server.getUrl());
+    assertEquals(OfflineDownloadManager.STATE_PAUSED, download.state);
+    long pausedBytes = download.downloadedBytes;
+    sleep(300);
+    assertEquals(pausedBytes, download.downloadedBytes);
+    assertTrue(pausedBytes < CONTENT_LENGTH);
+
+    server.setBytesPerSecond(0);
+    manager.resume(server.getUrl());
+    awaitState(download, OfflineDownloadManager.STATE_COMPLETED);
+    assertArrayEquals(content, Files.readAllBytes(download.file.toPath()));
+    List<TestHttpServer.Request> requests = server.getRequests();
+    assertEquals("bytes=" + pausedBytes + "-", requests.get(requests.size() - 1).range);
+  }
+
+  @Test
+  public void changedTrackIsDownloadedAgainFromTheStart() throws IOException {
+    OfflineDownloadManager.Download download = downloadPartially(manager, server);
+    byte[] changed = TestHttpServer.content(CONTENT_LENGTH + 1000);
+    changed[0]++;
+    server.setContent(changed, "\"2\"");
+
+    // If-Range no longer matches, the server answers 200 with the whole new track
+    manager.resume(server.getUrl());
+    awaitState(download, OfflineDownloadManager.STATE_COMPLETED);
+    assertEquals("\"2\"", download.etag);
+    assertArrayEquals(changed, Files.readAllBytes(download.file.toPath()));
+  }
+
+  @Test
+  public void partialDownloadSurvivesARestart() throws IOException {
+    OfflineDownloadManager.Download download = downloadPartially(manager, server);
+    manager.shutdown();
+
+    manager = createManager(directory);
+    OfflineDownloadManager.Download restored = manager.getDownload(server.getUrl());
+    assertEquals(OfflineDownloadManager.STATE_FAILED, restored.state);
+    assertEquals(BROKEN_AT, restored.downloadedBytes);
+    assertEquals(download.etag, restored.etag);
+
+    manager.resume(server.getUrl());
+    awaitState(restored, OfflineDownloadManager.STATE_COMPLETED);
+    assertArrayEquals(content, Files.readAllBytes(restored.file.toPath()));
+  }
+
+  static void sleep(long ms) {
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    file.delete();
+  }
+}
@@ -0,0 +1,201 @@
+package com.johnsonsu.rnsoundplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OriginSelectorTest {
+  private static final String A = "https://a.example.com/track.mp3";
+  private static final String B = "https://b.example.com/track.mp3";
+  private static final String C = "https://c.example.com/track.mp3";
+  private static final long HEDGE_DELAY_MS = 300;
+
+  private FakeTimeSource timeSource;
+
+  @Before
+  public void setUp() {
+    timeSource = new FakeTimeSource();
+  }
+
+  // Records which origins were opened and answers as told: right away, with an error, or once
+  // its gate opens
+  private static class FakeOpener implements OriginSelector.Opener {
+    final List<String> opened = Collections.synchronizedList(new ArrayList<String>());
+    final List<FakeConnection> connections = Collections.synchronizedList(new ArrayList<FakeConnection>());
+    private final Set<String> failing;
+    private final String gated;
+    final CountDownLatch gatedOpened = new CountDownLatch(1);
+    final CountDownLatch gate = new CountDownLatch(1);
+
+    FakeOpener(Set<String> failing, String gated) {
+      this.failing = failing;
+      this.gated = gated;
+    }
+
+    @Override
+    public OriginSelector.Connection open(String url) throws IOException {
+      opened.add(url);
+      if (url.equals(gated)) {
+        gatedOpened.countDown();
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      }
+      if (failing.contains(url)) {
+        throw new IOException("Failed: " + url);
+      }
+      FakeConnection connection = new FakeConnection(url);
+      connections.add(connection);
+      return new OriginSelector.Connection(url, connection, new ByteArrayInputStream(new byte[1]), 1);
+    }
+
+    FakeConnection connectionTo(String url) {
+      synchronized (connections) {
+        for (FakeConnection connection : connections) {
+          if (connection.getURL().toString().equals(url)) {
+            return connection;
+          }
+        }
+      }
+      return null;
+    }
+  }
+
+  private static class FakeConnection extends HttpURLConnection {
+    volatile boolean disconnected = false;
+
+    FakeConnection(String url) throws IOException {
+      super(new URL(url));
+    }
+
+    @Override
+    public void connect() {}
+
+    @Override
+    public void disconnect() {
+      disconnected = true;
+    }
+
+    @Override
+    public boolean usingProxy() {
+      return false;
+    }
+  }
+
+  private static Set<String> setOf(String... urls) {
+    return new java.util.HashSet<>(Arrays.asList(urls));
+  }
+
+  @Test
+  public void sequentialConnectFailsOverInOrder() throws IOException {
+    OriginSelector selector = new OriginSelector(Arrays.asList(A, B, C), 1, HEDGE_DELAY_MS, timeSource);
+    FakeOpener opener = new FakeOpener(setOf(A), null);
+
+    assertEquals(B, selector.connect(opener).url);
+    assertEquals(Arrays.asList(A, B), opener.opened);
+  }
+
+  @Test
+  public void winnerIsTriedFirstAndFailedOriginsLast() throws IOException {
+    OriginSelector selector = new OriginSelector(Arrays.asList(A, B, C), 1, HEDGE_DELAY_MS, timeSource);
+    selector.connect(new FakeOpener(setOf(A), null));
+
+    FakeOpener opener = new FakeOpener(setOf(A, B, C), null);
+    try {
+      selector.connect(opener);
+      fail("Every origin fails");
+    } catch (IOException e) {
+      // The last origin tried reports the error
+      assertEquals("Failed: " + A, e.getMessage());
+    }
+    assertEquals(Arrays.asList(B, C, A), opener.opened);
+  }
+
+  @Test
+  public void singleOriginHasNoAlternatives() {
+    assertFalse(new OriginSelector(Collections.singletonList(A), 2, HEDGE_DELAY_MS, timeSource).hasAlternatives());
+    assertTrue(new OriginSelector(Arrays.asList(A, B), 2, HEDGE_DELAY_MS, timeSource).hasAlternatives());
+  }
+
+  @Test
+  public void raceDoesNotHedgeWhenTheFirstOriginAnswers() throws IOException, InterruptedException {
+    OriginSelector selector = new OriginSelector(Arrays.asList(A, B), 2, HEDGE_DELAY_MS, timeSource);
+    FakeOpener opener = new FakeOpener(setOf(), null);
+
+    assertEquals(A, selector.connect(opener).url);
+    // Give a wrongly started hedge the chance to show up
+    Thread.sleep(50);
+    assertEquals(Collections.singletonList(A), opener.opened);
+  }
+
+  @Test
+  public void raceStartsTheNextOriginRightAwayWhenOneFails() throws IOException {
+    OriginSelector selector = new OriginSelector(Arrays.asList(A, B), 2, HEDGE_DELAY_MS, timeSource);
+    FakeOpener opener = new FakeOpener(setOf(A), null);
+
+    // The clock never moves, so B can only have started because A failed
+    assertEquals(B, selector.connect(opener).url);
+    assertEquals(Arrays.asList(A, B), opener.opened);
+  }
+
+  @Test
+  public void raceHedgesOnlyAfterTheDelay() throws Exception {
+    final OriginSelector selector = new OriginSelector(Arrays.asList(A, B), 2, HEDGE_DELAY_MS, timeSource);
+    final FakeOpener opener = new FakeOpener(setOf(), A);
+    final AtomicReference<OriginSelector.Connection> winner = new AtomicReference<>();
+    Thread connector = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          winner.set(selector.connect(opener));
+        } catch (IOException e) {
+          // Leaves `winner` unset
+        }
+      }
+    });
+    connector.start();
+    assertTrue(opener.gatedOpened.await(2, TimeUnit.SECONDS));
+
+    timeSource.advance(HEDGE_DELAY_MS - 1);
+    Thread.sleep(50);
+    assertEquals(Collections.singletonList(A), opener.opened);
+
+    timeSource.advance(1);
+    connector.join(2000);
+    assertEquals(B, winner.get().url);
+    assertEquals(Arrays.asList(A, B), opener.opened);
+
+    // The slow origin answers after losing and is closed
+    opener.gate.countDown();
+    long deadline = System.currentTimeMillis() + 2000;
+    while (opener.connectionTo(A) == null || !opener.connectionTo(A).disconnected) {
+      assertTrue(System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+    assertFalse(opener.connectionTo(B).disconnected);
+
+    // Later opens go to the winner first
+    FakeOpener next = new FakeOpener(setOf(), null);
+    assertEquals(B, selector.connect(next).url);
+    assertEquals(Collections.singletonList(B), next.opened);
+  }
+}
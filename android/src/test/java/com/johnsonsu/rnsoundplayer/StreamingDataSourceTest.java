@@ -0,0 +1,146 @@
+package com.johnsonsu.rnsoundplayer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+
+public class StreamingDataSourceTest {
+  private File directory;
+  private TestHttpServer server;
+  // A second origin with the same track, for the mirror tests
+  private TestHttpServer mirror;
+  private OfflineDownloadManager manager;
+  private byte[] content;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("downloads").toFile();
+    content = TestHttpServer.content(OfflineDownloadManagerTest.CONTENT_LENGTH);
+    server = new TestHttpServer(content);
+    mirror = new TestHttpServer(content);
+    manager = OfflineDownloadManagerTest.createManager(directory);
+  }
+
+  @After
+  public void tearDown() {
+    manager.shutdown();
+    server.stop();
+    mirror.stop();
+    OfflineDownloadManagerTest.deleteRecursively(directory);
+  }
+
+  // Reads the whole track from `position` like ExoPlayer does, 0 means the source is still
+  // buffering the header
+  static byte[] readAll(DataSource dataSource, String url, long position) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    dataSource.open(TestHttpServer.dataSpec(url, position));
+    try {
+      byte[] buffer = new byte[16 * 1024];
+      int read;
+      while ((read = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+        out.write(buffer, 0, read);
+      }
+    } finally {
+      dataSource.close();
+    }
+    return out.toByteArray();
+  }
+
+  private DataSource createDataSource() {
+    return new StreamingDataSource.Factory(server.getUrl(), null)
+            .setChunkEventsEnabled(false)
+            .setDownloadManager(manager)
+            .createDataSource();
+  }
+
+  @Test
+  public void playsPastAPartialDownloadWithRangeAndIfRange() throws IOException {
+    OfflineDownloadManagerTest.downloadPartially(manager, server);
+
+    assertArrayEquals(content, readAll(createDataSource(), server.getUrl(), 0));
+    List<TestHttpServer.Request> requests = server.getRequests();
+    // The download and then the continuation, the downloaded bytes come from disk
+    assertEquals(2, requests.size());
+    assertEquals("bytes=" + OfflineDownloadManagerTest.BROKEN_AT + "-", requests.get(1).range);
+    assertEquals("\"1\"", requests.get(1).ifRange);
+  }
+
+  @Test
+  public void trackChangedPastAPartialDownloadFailsTheLoadAndRestartsTheDownload() throws IOException {
+    OfflineDownloadManager.Download download = OfflineDownloadManagerTest.downloadPartially(manager, server);
+    server.setContent(TestHttpServer.content(OfflineDownloadManagerTest.CONTENT_LENGTH + 1000), "\"2\"");
+
+    try {
+      readAll(createDataSource(), server.getUrl(), 0);
+      fail("Old and new track were spliced together");
+    } catch (IOException e) {
+      assertTrue(e.toString(), StreamingDataSource.ContentChangedException.isCause(e));
+    }
+    // The download was not running, so it stays stopped, without the stale bytes
+    assertEquals(0, download.downloadedBytes);
+    assertFalse(download.file.exists());
+  }
+
+  private DataSource createMirroredDataSource(OriginSelector originSelector) {
+    return new StreamingDataSource.Factory(server.getUrl(), null)
+            .setChunkEventsEnabled(false)
+            .setOriginSelector(originSelector)
+            .createDataSource();
+  }
+
+  @Test
+  public void failsOverMidStreamAtTheCurrentByte() throws IOException {
+    server.setFailAfterBytes(OfflineDownloadManagerTest.BROKEN_AT);
+    OriginSelector originSelector = new OriginSelector(Arrays.asList(server.getUrl(), mirror.getUrl()), 1, 0);
+
+    assertArrayEquals(content, readAll(createMirroredDataSource(originSelector), server.getUrl(), 0));
+    assertEquals(1, server.getRequests().size());
+    List<TestHttpServer.Request> mirrorRequests = mirror.getRequests();
+    assertEquals(1, mirrorRequests.size());
+    assertEquals("bytes=" + OfflineDownloadManagerTest.BROKEN_AT + "-", mirrorRequests.get(0).range);
+  }
+
+  @Test
+  public void unreachableOriginIsSkipped() throws IOException {
+    server.stop();
+    OriginSelector originSelector = new OriginSelector(Arrays.asList(server.getUrl(), mirror.getUrl()), 1, 0);
+
+    assertArrayEquals(content, readAll(createMirroredDataSource(originSelector), server.getUrl(), 0));
+    // Seeks go straight to the mirror that worked
+    byte[] tail = readAll(createMirroredDataSource(originSelector), server.getUrl(), 4096);
+    assertArrayEquals(Arrays.copyOfRange(content, 4096, content.length), tail);
+    assertEquals(2, mirror.getRequests().size());
+  }
+
+  @Test
+  public void raceHedgesToTheFasterMirrorAndKeepsIt() throws IOException {
+    server.setResponseDelayMs(2000);
+    OriginSelector originSelector = new OriginSelector(Arrays.asList(server.getUrl(), mirror.getUrl()), 2, 100);
+
+    long startMs = System.currentTimeMillis();
+    assertArrayEquals(content, readAll(createMirroredDataSource(originSelector), server.getUrl(), 0));
+    assertTrue(System.currentTimeMillis() - startMs < 1500);
+
+    // The slow origin lost and isn't asked again
+    readAll(createMirroredDataSource(originSelector), server.getUrl(), 4096);
+    assertEquals(1, server.getRequests().size());
+    assertEquals(2, mirror.getRequests().size());
+    assertEquals("bytes=4096-", mirror.getRequests().get(1).range);
+  }
+}
@@ -0,0 +1,161 @@
+package com.johnsonsu.rnsoundplayer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+// Serves one resource on localhost with Range and If-Range support, an optional throttle, a delay
+// before the response and a connection that breaks after a number of bytes
+class TestHttpServer {
+  private static final int WRITE_SIZE = 4096;
+
+  static class Request {
+    final String range;
+    final String ifRange;
+
+    Request(String range, String ifRange) {
+      this.range = range;
+      this.ifRange = ifRange;
+    }
+  }
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final List<Request> requests = Collections.synchronizedList(new ArrayList<Request>());
+  private volatile byte[] content;
+  private volatile String etag = "\"1\"";
+  private volatile long bytesPerSecond = 0; // 0 means unthrottled
+  private volatile long responseDelayMs = 0;
+  private volatile long failAfterBytes = -1; // -1 means never
+
+  TestHttpServer(byte[] content) throws IOException {
+    this.content = content;
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        serve(exchange);
+      }
+    });
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  String getUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/track.mp3";
+  }
+
+  // New content with a new validator, as if the track was replaced on the server
+  void setContent(byte[] content, String etag) {
+    this.content = content;
+    this.etag = etag;
+  }
+
+  void setBytesPerSecond(long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  void setResponseDelayMs(long responseDelayMs) {
+    this.responseDelayMs = responseDelayMs;
+  }
+
+  // Breaks every following response after `failAfterBytes` bytes of the body, -1 to stop
+  void setFailAfterBytes(long failAfterBytes) {
+    this.failAfterBytes = failAfterBytes;
+  }
+
+  List<Request> getRequests() {
+    synchronized (requests) {
+      return new ArrayList<>(requests);
+    }
+  }
+
+  void stop() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void serve(HttpExchange exchange) throws IOException {
+    String range = exchange.getRequestHeaders().getFirst("Range");
+    String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+    requests.add(new Request(range, ifRange));
+    sleep(responseDelayMs);
+
+    byte[] body = content;
+    int start = 0;
+    int end = body.length;
+    if (range != null && (ifRange == null || ifRange.equals(etag))) {
+      String[] bounds = range.substring("bytes=".length()).split("-", -1);
+      start = Integer.parseInt(bounds[0]);
+      if (!bounds[1].isEmpty()) {
+        end = Math.min(end, Integer.parseInt(bounds[1]) + 1);
+      }
+      exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + body.length);
+    }
+    exchange.getResponseHeaders().set("ETag", etag);
+    exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+    // A broken connection can only be told apart from the end of a chunked body
+    long failAfter = failAfterBytes;
+    exchange.sendResponseHeaders(start > 0 || end < body.length ? 206 : 200, failAfter >= 0 ? 0 : end - start);
+
+    OutputStream out = exchange.getResponseBody();
+    long startNs = System.nanoTime();
+    int written = 0;
+    while (start + written < end) {
+      int length = Math.min(WRITE_SIZE, end - start - written);
+      if (failAfter >= 0 && written + length > failAfter) {
+        out.write(body, start + written, (int) failAfter - written);
+        out.flush();
+        // Closes the connection without ending the chunked body
+        throw new IOException("Connection broken on purpose");
+      }
+      out.write(body, start + written, length);
+      out.flush();
+      written += length;
+      long rate = bytesPerSecond;
+      if (rate > 0) {
+        long dueMs = written * 1000L / rate - (System.nanoTime() - startNs) / 1000000;
+        sleep(dueMs);
+      }
+    }
+    out.close();
+  }
+
+  private static void sleep(long ms) {
+    if (ms <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // android.net.Uri is a stub in JVM tests, which is fine: StreamingDataSource only reads the
+  // position and length of the spec and keeps its own URL
+  static DataSpec dataSpec(String url, long position) {
+    return new DataSpec(Uri.parse(url), position, C.LENGTH_UNSET);
+  }
+
+  static byte[] content(int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i * 31 + (i >> 8));
+    }
+    return data;
+  }
+}
@@ -0,0 +1,144 @@
+package com.johnsonsu.rnsoundplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+
+public class VariantSwitcherTest {
+  private static final VariantSwitcher.Variant LOW = new VariantSwitcher.Variant("low", 100000, null, null);
+  private static final VariantSwitcher.Variant MEDIUM = new VariantSwitcher.Variant("medium", 500000, null, null);
+  private static final VariantSwitcher.Variant HIGH = new VariantSwitcher.Variant("high", 5000000, null, null);
+  private static final List<VariantSwitcher.Variant> LADDER = Arrays.asList(HIGH, LOW, MEDIUM);
+  private static final long DURATION_MS = 95000;
+
+  // The tests only exercise switching, the playlist and its data sources are never built
+  private static final VariantSwitcher.FactoryProvider NO_FACTORIES = new VariantSwitcher.FactoryProvider() {
+    @Override
+    public DataSource.Factory create(VariantSwitcher.Variant variant) {
+      return null;
+    }
+  };
+
+  private TestHttpServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new TestHttpServer(TestHttpServer.content(4 * 1024 * 1024));
+  }
+
+  @After
+  public void tearDown() {
+    server.stop();
+  }
+
+  // Streams `length` bytes from the server like the player does and returns the throughput in
+  // bits per second
+  private long measureBitrate(int length) throws IOException {
+    DataSource dataSource = new StreamingDataSource.Factory(server.getUrl(), null)
+            .setChunkEventsEnabled(false)
+            .createDataSource();
+    long startNs = System.nanoTime();
+    dataSource.open(TestHttpServer.dataSpec(server.getUrl(), 0));
+    byte[] buffer = new byte[16 * 1024];
+    int total = 0;
+    while (total < length) {
+      int read = dataSource.read(buffer, 0, buffer.length);
+      if (read == C.RESULT_END_OF_INPUT) {
+        break;
+      }
+      total += read;
+    }
+    long elapsedNs = System.nanoTime() - startNs;
+    dataSource.close();
+    return total * 8L * 1000000000L / elapsedNs;
+  }
+
+  @Test
+  public void startsWithTheVariantTheThrottledServerAllows() throws IOException {
+    // 1 Mbit/s: 70% of it fits the medium variant but not the high one
+    server.setBytesPerSecond(125000);
+    long estimate = measureBitrate(128 * 1024);
+    assertTrue("Measured " + estimate, estimate > 714286 && estimate <= 1100000);
+
+    VariantSwitcher switcher = new VariantSwitcher(LADDER, NO_FACTORIES, DURATION_MS, estimate);
+    assertSame(MEDIUM, switcher.getVariantAt(0));
+    assertSame(MEDIUM, switcher.getVariantAt(DURATION_MS - 1));
+  }
+
+  @Test
+  public void switchesUpOnceTheServerSpeedsUpWithoutTouchingTheBufferedSegments() throws IOException {
+    server.setBytesPerSecond(125000);
+    VariantSwitcher switcher = new VariantSwitcher(LADDER, NO_FACTORIES, DURATION_MS, measureBitrate(128 * 1024));
+
+    // 16 Mbit/s fits the high variant
+    server.setBytesPerSecond(2000000);
+    long estimate = measureBitrate(1024 * 1024);
+    assertTrue("Measured " + estimate, estimate > 7142857);
+
+    // Buffered into the second segment: that one plays out as it is, the switch starts after it
+    long bufferedPositionMs = VariantSwitcher.SEGMENT_MS + 5000;
+    assertSame(HIGH, switcher.switchTo(bufferedPositionMs, estimate));
+    assertSame(MEDIUM, switcher.getVariantAt(0));
+    assertSame(MEDIUM, switcher.getVariantAt(bufferedPositionMs));
+    assertSame(HIGH, switcher.getVariantAt(2 * VariantSwitcher.SEGMENT_MS));
+    assertSame(HIGH, switcher.getVariantAt(DURATION_MS - 1));
+  }
+
+  @Test
+  public void switchesDownWhenTheServerSlowsDown() throws IOException {
+    VariantSwitcher switcher = new VariantSwitcher(LADDER, NO_FACTORIES, DURATION_MS, measureBitrate(1024 * 1024));
+    assertSame(HIGH, switcher.getVariantAt(0));
+
+    // 200 kbit/s only fits the lowest variant
+    server.setBytesPerSecond(25000);
+    assertSame(LOW, switcher.switchTo(0, measureBitrate(48 * 1024)));
+    assertSame(HIGH, switcher.getVariantAt(0));
+    assertSame(LOW, switcher.getVariantAt(VariantSwitcher.SEGMENT_MS));
+  }
+
+  @Test
+  public void noSwitchWhenTheVariantStillFits() {
+    VariantSwitcher switcher = new VariantSwitcher(LADDER, NO_FACTORIES, DURATION_MS, 1000000);
+    assertNull(switcher.switchTo(0, 1200000));
+    assertSame(MEDIUM, switcher.getVariantAt(DURATION_MS - 1));
+  }
+
+  @Test
+  public void noSwitchOnceTheLastSegmentIsLoading() {
+    VariantSwitcher switcher = new VariantSwitcher(LADDER, NO_FACTORIES, DURATION_MS, 1000000);
+    assertNull(switcher.switchTo(DURATION_MS - 1000, 100000000));
+    assertSame(MEDIUM, switcher.getVariantAt(DURATION_MS - 1));
+  }
+
+  @Test
+  public void segmentsMapToTrackPositions() {
+    VariantSwitcher switcher = new VariantSwitcher(LADDER, NO_FACTORIES, DURATION_MS, 1000000);
+    // 95 seconds are four segments of 20 and one of 15
+    assertEquals(5, switcher.getSegmentCount());
+    assertEquals(0, switcher.segmentAt(0));
+    assertEquals(0, switcher.segmentAt(VariantSwitcher.SEGMENT_MS - 1));
+    assertEquals(1, switcher.segmentAt(VariantSwitcher.SEGMENT_MS));
+    assertEquals(4, switcher.segmentAt(DURATION_MS + 5000));
+    assertEquals(2 * VariantSwitcher.SEGMENT_MS + 1500, switcher.toTrackPositionMs(2, 1500));
+  }
+
+  @Test
+  public void trackWithoutDurationIsOneSegmentThatNeverSwitches() {
+    VariantSwitcher switcher = new VariantSwitcher(LADDER, NO_FACTORIES, C.TIME_UNSET, 1000000);
+    assertEquals(1, switcher.getSegmentCount());
+    assertNull(switcher.switchTo(0, 100000000));
+    assertSame(MEDIUM, switcher.getVariantAt(60000));
+  }
+}
@@ -7,7 +7,14 @@ declare module "react-native-sound-player" {
     | "FinishedPlaying"
     | "FinishedLoadingURL"
     | "FinishedLoadingFile"
-    | "OnChunkReceived";
+    | "OnChunkReceived"
+    | "OnDownloadProgress"
+    | "OnDownloadStateChanged"
+    | "OnLevelMeter"
+    | "OnTapChunk"
+    | "OnLoadSuspended"
+    | "OnLoop"
+    | "OnVariantChanged";
 
   export type SoundPlayerEventData = {
     success?: boolean;
@@ -21,30 +28,149 @@ declare module "react-native-sound-player" {
     isLoading?: boolean;
     duration?: number;
     bitrate?: number;
+    state?: DownloadState;
+    downloadedBytes?: number;
+    totalBytes?: number;
+    progress?: number;
+    error?: string;
+    rms?: number[];
+    peak?: number[];
+    intervalMs?: number;
+    sequence?: number;
+    path?: string;
+    offset?: number;
+    length?: number;
+    dropped?: number;
+    buffered?: number;
+    iteration?: number;
+    remaining?: number;
+    seamless?: boolean;
+    estimate?: number;
+  };
+
+  /** One bitrate of a track in a quality ladder, `bitrate` in bits per second. */
+  export type StreamVariant = {
+    url: string;
+    bitrate: number;
+    dekHex?: string;
+    counterBaseHex?: string;
+  };
+
+  export type ScheduledSound = {
+    name: string;
+    /** Time the audio started on the `getAudioClockTime` clock, in ms, measured from the player's audio position (accurate to a few ms). */
+    startTime: number;
+    /** `startTime` minus the requested start time, including the device's output latency. */
+    lateMs: number;
+  };
+
+  /** A track to read: either a `url` or a local `path`, optionally AES-CTR encrypted. */
+  export type SoundSource = {
+    url?: string;
+    path?: string;
+    dekHex?: string;
+    counterBaseHex?: string;
+  };
+
+  /** A named part of a sprite file, in seconds. */
+  export type SpriteRegion = {
+    start: number;
+    duration: number;
+  };
+
+  export type BufferPoolStats = {
+    /** Buffers handed out from the pool. */
+    hits: number;
+    /** Buffers that had to be allocated. */
+    misses: number;
+    /** Released buffers left to the garbage collector because the pool was full. */
+    dropped: number;
+    /** Buffers currently in the pool. */
+    pooled: number;
+    pooledBytes: number;
+  };
+
+  export type DownloadState =
+    | "queued"
+    | "downloading"
+    | "paused"
+    | "completed"
+    | "failed";
+
+  export type DownloadInfo = {
+    url: string;
+    state: DownloadState;
+    downloadedBytes: number;
+    /** -1 while the size is not known yet. */
+    totalBytes: number;
+    progress?: number;
   };
 
   interface SoundPlayerType {
     playSoundFile: (name: string, type: string) => void;
     playSoundFileWithDelay: (name: string, type: string, delay: number) => void;
     loadSoundFile: (name: string, type: string) => void;
+    /** Android only. Current time in ms on the monotonic clock used by `scheduleSounds`. */
+    getAudioClockTime: () => Promise<number>;
+    /** Android only. Start sound files together at `startTime` (from `getAudioClockTime`), resolving with their actual start times. */
+    scheduleSounds: (
+      sounds: { name: string; type: string }[],
+      startTime: number
+    ) => Promise<ScheduledSound[]>;
+    /** Android only. Stop every sound started or scheduled by `scheduleSounds`. */
+    stopScheduledSounds: () => void;
     playUrl: (url: string) => void;
     loadUrl: (url: string) => void;
-    playUrlWithStreaming: (url: string) => void;
-    loadUrlWithStreaming: (url: string) => void;
+    /** `url` may be an ordered array of mirrors of the same content (Android only, iOS uses the first one). */
+    playUrlWithStreaming: (url: string | string[]) => void;
+    loadUrlWithStreaming: (url: string | string[]) => void;
     playUrlWithStreamingEncrypted: (
-      url: string,
+      url: string | string[],
       dekHex: string,
       counterBaseHex: string,
       bitrate: number,
       duration: number
     ) => void;
     loadUrlWithStreamingEncrypted: (
-      url: string,
+      url: string | string[],
       dekHex: string,
       counterBaseHex: string,
       bitrate: number,
       duration: number
     ) => void;
+    /** Stream a track available at several bitrates, switching between them with the measured bandwidth. `duration` in seconds. Android only, iOS streams the lowest bitrate. */
+    playUrlWithStreamingVariants: (
+      variants: StreamVariant[],
+      duration: number
+    ) => void;
+    loadUrlWithStreamingVariants: (
+      variants: StreamVariant[],
+      duration: number
+    ) => void;
+    /** Android only. Seconds a paused player waits before it stops loading and closes its connections (60 by default, 0 disables). Emits `OnLoadSuspended`. */
+    setIdleSuspendTimeout: (seconds: number) => void;
+    /** Android only. Size bound and lifetime of the persistent cache of stream headers and metadata (2 MB and 7 days by default). */
+    setHeaderCacheOptions: (maxBytes: number, ttlSeconds: number) => void;
+    /** Android only. Remove every cached stream header. */
+    clearHeaderCache: () => void;
+    /** Android only. Forget the throughput measured per network type and host, so streams start with the default buffering again. */
+    clearBandwidthHistory: () => void;
+    /** Android only. Hand streamed audio to the decoder as soon as its container header is complete and start playback at a quarter second buffered. Applies to streams loaded afterwards. */
+    setFastStartEnabled: (enabled: boolean) => void;
+    /** Android only. Number of mirrors racing for the first byte, and the delay before each next mirror joins the race. */
+    setMirrorOptions: (raceWidth: number, hedgeDelayMs: number) => void;
+    /** Android only. Play an AES-CTR encrypted file from app storage without writing decrypted data to disk. Relative paths are resolved against the app's files directory. */
+    playFileEncrypted: (
+      path: string,
+      dekHex: string,
+      counterBaseHex: string
+    ) => void;
+    /** Android only. Load an AES-CTR encrypted file from app storage without playing it. */
+    loadFileEncrypted: (
+      path: string,
+      dekHex: string,
+      counterBaseHex: string
+    ) => void;
     playAsset: (asset: number) => void;
     loadAsset: (asset: number) => void;
     /** @deprecated  please use addEventListener*/
@@ -72,7 +198,7 @@ declare module "react-native-sound-player" {
     setSpeaker: (on: boolean) => void;
     /** Only available on iOS. If you set this option, your audio will be mixed with audio playing in background apps, such as the Music app. */
     setMixAudio: (on: boolean) => void;
-    /** iOS: 0 means to play the sound once, a positive number specifies the number of times to return to the start and play again, a negative number indicates an indefinite loop. Android: 0 means to play the sound once, other numbers indicate an indefinite loop. */
+    /** 0 means to play the sound once, a positive number specifies the number of times to return to the start and play again, a negative number indicates an indefinite loop. On Android every return to the start emits `OnLoop`. */
     setNumberOfLoops: (loops: number) => void;
     /** Get the currentTime and duration of the currently mounted audio media. This function returns a promise which resolves to an Object containing currentTime and duration properties. For encrypted streams, also includes bitrate and customDuration fields. */
     getInfo: () => Promise<{
@@ -81,6 +207,60 @@ declare module "react-native-sound-player" {
       bitrate?: number;
       customDuration?: boolean;
     }>;
+    /** Android only. Download a track for offline use. Streaming playback of the same url uses the downloaded bytes, even while the download is still running. */
+    downloadUrl: (url: string) => Promise<DownloadInfo>;
+    /** Android only. Pause a running download, it can be continued with `resumeDownload`. */
+    pauseDownload: (url: string) => void;
+    /** Android only. Continue a paused or failed download from where it stopped. */
+    resumeDownload: (url: string) => void;
+    /** Android only. Cancel a download and delete its file. Resolves to false if the url was never downloaded. */
+    removeDownload: (url: string) => Promise<boolean>;
+    /** Android only. List all downloads with their state and progress. */
+    getDownloads: () => Promise<DownloadInfo[]>;
+    /** Android only. Limit the number of parallel downloads and the total storage used by downloads. A `maxStorageBytes` of 0 means unlimited. */
+    setDownloadOptions: (maxConcurrentDownloads: number, maxStorageBytes: number) => void;
+    /** Android only. Configure how background loading (downloads, waveforms) yields to the playing track: paused while its buffer is below `lowWatermarkMs`, throttled to `backgroundBytesPerSecond` below `highWatermarkMs`. */
+    setNetworkPriorityOptions: (
+      lowWatermarkMs: number,
+      highWatermarkMs: number,
+      backgroundBytesPerSecond: number
+    ) => void;
+    /** Android only. Hit and miss counts of the buffer pool shared by streaming sources, for metrics. */
+    getBufferPoolStats: () => Promise<BufferPoolStats>;
+    /** Android only. Copy every chunk of unencrypted streamed audio into a ring file in the cache directory and emit an `OnTapChunk` event with the `path`, `offset` and `length` of every `batchBytes` (64 KB by default) of contiguous data. Resolves to the ring file path, or null when disabling. Encrypted streams are never tapped. Takes effect immediately, including for the stream that is playing. */
+    setChunkTapEnabled: (
+      enabled: boolean,
+      capacityBytes?: number,
+      batchBytes?: number
+    ) => Promise<string | null>;
+    /** Android only. Release a tapped batch (by its `sequence`) and everything before it so their space in the ring can be reused. */
+    releaseTapChunk: (sequence: number) => void;
+    /** Android only. Emit `OnLevelMeter` events with the RMS and peak level (0..1) of the playing audio, one value per `intervalMs`, `batchSize` values per event. */
+    setMeteringEnabled: (
+      enabled: boolean,
+      intervalMs?: number,
+      batchSize?: number
+    ) => void;
+    /** Android only (6.0+). Decode a whole track in the background and resolve to `buckets` peak values between 0 and 1. */
+    computeWaveform: (source: SoundSource, buckets: number) => Promise<number[]>;
+    /** Android only (6.0+). Decode a short track into memory and loop it without gaps or further reads, with the `setNumberOfLoops` meaning of `loops`. Resolves once playback starts. */
+    playSeamlessLoop: (
+      source: SoundSource,
+      loops: number
+    ) => Promise<{ duration: number }>;
+    /** Android only. Stop the loop started by `playSeamlessLoop`. */
+    stopSeamlessLoop: () => void;
+    /** Android only (6.0+). Decode one file containing many short sounds and make its named regions playable with `playSprite`. Replaces the sprite loaded before. */
+    loadSprite: (
+      source: SoundSource,
+      regions: { [name: string]: SpriteRegion }
+    ) => Promise<{ duration: number }>;
+    /** Android only. Play a region of the loaded sprite, regions can overlap. */
+    playSprite: (name: string) => void;
+    /** Android only. Stop every playing sprite region. */
+    stopSprites: () => void;
+    /** Android only. Stop the sprite and free its decoded audio. */
+    unloadSprite: () => void;
     /** @deprecated Please use addEventListener and remove your own listener by calling yourSubscriptionObject.remove(). */
     unmount: () => void;
   }
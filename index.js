@@ -11,6 +11,40 @@ const _soundPlayerEmitter = new NativeEventEmitter(RNSoundPlayer);
 let _finishedPlayingListener = null;
 let _finishedLoadingListener = null;
 
+// Mirror lists are Android only, iOS streams the first mirror with the single-URL method
+const playWithMirrors = (method, urls, args) => {
+  if (Platform.OS !== "android") {
+    RNSoundPlayer[method.replace("Mirrors", "")](urls[0], ...args);
+  } else {
+    RNSoundPlayer[method](urls, ...args);
+  }
+};
+
+// Bitrate ladders are Android only, iOS streams the lowest variant with the single-URL methods
+const playWithVariants = (play, variants, duration) => {
+  if (Platform.OS === "android") {
+    if (play) {
+      RNSoundPlayer.playUrlWithStreamingVariants(variants, duration);
+    } else {
+      RNSoundPlayer.loadUrlWithStreamingVariants(variants, duration);
+    }
+    return;
+  }
+  const lowest = variants.reduce((a, b) => (b.bitrate < a.bitrate ? b : a));
+  const prefix = play ? "play" : "load";
+  if (lowest.dekHex && lowest.counterBaseHex) {
+    RNSoundPlayer[prefix + "UrlWithStreamingEncrypted"](
+      lowest.url,
+      lowest.dekHex,
+      lowest.counterBaseHex,
+      lowest.bitrate,
+      duration
+    );
+  } else {
+    RNSoundPlayer[prefix + "UrlWithStreaming"](lowest.url);
+  }
+};
+
 export default {
   playSoundFile: (name, type) => {
     RNSoundPlayer.playSoundFile(name, type);
@@ -24,6 +58,28 @@ export default {
     RNSoundPlayer.loadSoundFile(name, type);
   },
 
+  getAudioClockTime: async () => {
+    if (Platform.OS !== "android") {
+      throw new Error("getAudioClockTime is not implemented on iOS");
+    }
+    return RNSoundPlayer.getAudioClockTime();
+  },
+
+  scheduleSounds: async (sounds, startTime) => {
+    if (Platform.OS !== "android") {
+      throw new Error("scheduleSounds is not implemented on iOS");
+    }
+    return RNSoundPlayer.scheduleSounds(sounds, startTime);
+  },
+
+  stopScheduledSounds: () => {
+    if (Platform.OS !== "android") {
+      console.log("stopScheduledSounds is not implemented on iOS");
+    } else {
+      RNSoundPlayer.stopScheduledSounds();
+    }
+  },
+
   setNumberOfLoops: (loops) => {
     RNSoundPlayer.setNumberOfLoops(loops);
   },
@@ -36,12 +92,21 @@ export default {
     RNSoundPlayer.loadUrl(url);
   },
 
+  // `url` may be an ordered array of mirror URLs for the same content (Android only)
   playUrlWithStreaming: (url) => {
-    RNSoundPlayer.playUrlWithStreaming(url);
+    if (Array.isArray(url)) {
+      playWithMirrors("playUrlWithStreamingMirrors", url, []);
+    } else {
+      RNSoundPlayer.playUrlWithStreaming(url);
+    }
   },
 
   loadUrlWithStreaming: (url) => {
-    RNSoundPlayer.loadUrlWithStreaming(url);
+    if (Array.isArray(url)) {
+      playWithMirrors("loadUrlWithStreamingMirrors", url, []);
+    } else {
+      RNSoundPlayer.loadUrlWithStreaming(url);
+    }
   },
 
   playUrlWithStreamingEncrypted: (
@@ -51,13 +116,22 @@ export default {
     bitrate,
     duration
   ) => {
-    RNSoundPlayer.playUrlWithStreamingEncrypted(
-      url,
-      dekHex,
-      counterBaseHex,
-      bitrate,
-      duration
-    );
+    if (Array.isArray(url)) {
+      playWithMirrors("playUrlWithStreamingEncryptedMirrors", url, [
+        dekHex,
+        counterBaseHex,
+        bitrate,
+        duration,
+      ]);
+    } else {
+      RNSoundPlayer.playUrlWithStreamingEncrypted(
+        url,
+        dekHex,
+        counterBaseHex,
+        bitrate,
+        duration
+      );
+    }
   },
 
   loadUrlWithStreamingEncrypted: (
@@ -67,13 +141,94 @@ export default {
     bitrate,
     duration
   ) => {
-    RNSoundPlayer.loadUrlWithStreamingEncrypted(
-      url,
-      dekHex,
-      counterBaseHex,
-      bitrate,
-      duration
-    );
+    if (Array.isArray(url)) {
+      playWithMirrors("loadUrlWithStreamingEncryptedMirrors", url, [
+        dekHex,
+        counterBaseHex,
+        bitrate,
+        duration,
+      ]);
+    } else {
+      RNSoundPlayer.loadUrlWithStreamingEncrypted(
+        url,
+        dekHex,
+        counterBaseHex,
+        bitrate,
+        duration
+      );
+    }
+  },
+
+  playUrlWithStreamingVariants: (variants, duration) => {
+    playWithVariants(true, variants, duration);
+  },
+
+  loadUrlWithStreamingVariants: (variants, duration) => {
+    playWithVariants(false, variants, duration);
+  },
+
+  setIdleSuspendTimeout: (seconds) => {
+    if (Platform.OS !== "android") {
+      console.log("setIdleSuspendTimeout is not implemented on iOS");
+    } else {
+      RNSoundPlayer.setIdleSuspendTimeout(seconds);
+    }
+  },
+
+  setHeaderCacheOptions: (maxBytes, ttlSeconds) => {
+    if (Platform.OS !== "android") {
+      console.log("setHeaderCacheOptions is not implemented on iOS");
+    } else {
+      RNSoundPlayer.setHeaderCacheOptions(maxBytes, ttlSeconds);
+    }
+  },
+
+  clearHeaderCache: () => {
+    if (Platform.OS !== "android") {
+      console.log("clearHeaderCache is not implemented on iOS");
+    } else {
+      RNSoundPlayer.clearHeaderCache();
+    }
+  },
+
+  clearBandwidthHistory: () => {
+    if (Platform.OS !== "android") {
+      console.log("clearBandwidthHistory is not implemented on iOS");
+    } else {
+      RNSoundPlayer.clearBandwidthHistory();
+    }
+  },
+
+  setFastStartEnabled: (enabled) => {
+    if (Platform.OS !== "android") {
+      console.log("setFastStartEnabled is not implemented on iOS");
+    } else {
+      RNSoundPlayer.setFastStartEnabled(enabled);
+    }
+  },
+
+  setMirrorOptions: (raceWidth, hedgeDelayMs) => {
+    if (Platform.OS !== "android") {
+      console.log("setMirrorOptions is not implemented on iOS");
+    } else {
+      RNSoundPlayer.setMirrorOptions(raceWidth, hedgeDelayMs);
+    }
+  },
+
+  playFileEncrypted: (path, dekHex, counterBaseHex) => {
+    if (Platform.OS !== "android") {
+      console.log("playFileEncrypted is not implemented on iOS");
+    } else {
+      RNSoundPlayer.playFileEncrypted(path, dekHex, counterBaseHex);
+    }
+  },
+
+  loadFileEncrypted: (path, dekHex, counterBaseHex) => {
+    if (Platform.OS !== "android") {
+      console.log("loadFileEncrypted is not implemented on iOS");
+    } else {
+      RNSoundPlayer.loadFileEncrypted(path, dekHex, counterBaseHex);
+    }
   },
 
   playAsset: async (asset) => {
@@ -158,6 +313,150 @@ export default {
 
   getInfo: async () => RNSoundPlayer.getInfo(),
 
+  downloadUrl: async (url) => {
+    if (Platform.OS !== "android") {
+      throw new Error("downloadUrl is not implemented on iOS");
+    }
+    return RNSoundPlayer.downloadUrl(url);
+  },
+
+  pauseDownload: (url) => {
+    if (Platform.OS !== "android") {
+      console.log("pauseDownload is not implemented on iOS");
+    } else {
+      RNSoundPlayer.pauseDownload(url);
+    }
+  },
+
+  resumeDownload: (url) => {
+    if (Platform.OS !== "android") {
+      console.log("resumeDownload is not implemented on iOS");
+    } else {
+      RNSoundPlayer.resumeDownload(url);
+    }
+  },
+
+  removeDownload: async (url) => {
+    if (Platform.OS !== "android") {
+      throw new Error("removeDownload is not implemented on iOS");
+    }
+    return RNSoundPlayer.removeDownload(url);
+  },
+
+  getDownloads: async () => {
+    if (Platform.OS !== "android") {
+      throw new Error("getDownloads is not implemented on iOS");
+    }
+    return RNSoundPlayer.getDownloads();
+  },
+
+  setDownloadOptions: (maxConcurrentDownloads, maxStorageBytes) => {
+    if (Platform.OS !== "android") {
+      console.log("setDownloadOptions is not implemented on iOS");
+    } else {
+      RNSoundPlayer.setDownloadOptions(maxConcurrentDownloads, maxStorageBytes);
+    }
+  },
+
+  setNetworkPriorityOptions: (
+    lowWatermarkMs,
+    highWatermarkMs,
+    backgroundBytesPerSecond
+  ) => {
+    if (Platform.OS !== "android") {
+      console.log("setNetworkPriorityOptions is not implemented on iOS");
+    } else {
+      RNSoundPlayer.setNetworkPriorityOptions(
+        lowWatermarkMs,
+        highWatermarkMs,
+        backgroundBytesPerSecond
+      );
+    }
+  },
+
+  getBufferPoolStats: async () => {
+    if (Platform.OS !== "android") {
+      throw new Error("getBufferPoolStats is not implemented on iOS");
+    }
+    return RNSoundPlayer.getBufferPoolStats();
+  },
+
+  setChunkTapEnabled: async (enabled, capacityBytes = 1024 * 1024, batchBytes = 64 * 1024) => {
+    if (Platform.OS !== "android") {
+      throw new Error("setChunkTapEnabled is not implemented on iOS");
+    }
+    return RNSoundPlayer.setChunkTapEnabled(enabled, capacityBytes, batchBytes);
+  },
+
+  releaseTapChunk: (sequence) => {
+    if (Platform.OS !== "android") {
+      console.log("releaseTapChunk is not implemented on iOS");
+    } else {
+      RNSoundPlayer.releaseTapChunk(sequence);
+    }
+  },
+
+  setMeteringEnabled: (enabled, intervalMs = 50, batchSize = 4) => {
+    if (Platform.OS !== "android") {
+      console.log("setMeteringEnabled is not implemented on iOS");
+    } else {
+      RNSoundPlayer.setMeteringEnabled(enabled, intervalMs, batchSize);
+    }
+  },
+
+  computeWaveform: async (source, buckets) => {
+    if (Platform.OS !== "android") {
+      throw new Error("computeWaveform is not implemented on iOS");
+    }
+    return RNSoundPlayer.computeWaveform(source, buckets);
+  },
+
+  playSeamlessLoop: async (source, loops) => {
+    if (Platform.OS !== "android") {
+      throw new Error("playSeamlessLoop is not implemented on iOS");
+    }
+    return RNSoundPlayer.playSeamlessLoop(source, loops);
+  },
+
+  stopSeamlessLoop: () => {
+    if (Platform.OS !== "android") {
+      console.log("stopSeamlessLoop is not implemented on iOS");
+    } else {
+      RNSoundPlayer.stopSeamlessLoop();
+    }
+  },
+
+  loadSprite: async (source, regions) => {
+    if (Platform.OS !== "android") {
+      throw new Error("loadSprite is not implemented on iOS");
+    }
+    return RNSoundPlayer.loadSprite(source, regions);
+  },
+
+  playSprite: (name) => {
+    if (Platform.OS !== "android") {
+      console.log("playSprite is not implemented on iOS");
+    } else {
+      RNSoundPlayer.playSprite(name);
+    }
+  },
+
+  stopSprites: () => {
+    if (Platform.OS !== "android") {
+      console.log("stopSprites is not implemented on iOS");
+    } else {
+      RNSoundPlayer.stopSprites();
+    }
+  },
+
+  unloadSprite: () => {
+    if (Platform.OS !== "android") {
+      console.log("unloadSprite is not implemented on iOS");
+    } else {
+      RNSoundPlayer.unloadSprite();
+    }
+  },
+
   unmount: () => {
     if (_finishedPlayingListener) {
       _finishedPlayingListener.remove();